@@ -0,0 +1,74 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Adds the unique (indicator_id, date) constraint that record upserts rely on. Uploads used to append
+ * records without checking dates, so duplicates are collapsed first and the record with the highest id wins.
+ * Flyway runs before Hibernate updates the schema, a new database gets the table with the constraint from Hibernate.
+ */
+public class V1__UniqueRecordDates extends BaseJavaMigration {
+
+    private static final Logger logger = LoggerFactory.getLogger(V1__UniqueRecordDates.class);
+
+    private static final String TABLE = "records";
+    private static final Set<String> KEY_COLUMNS = new HashSet<>(Arrays.asList("indicator_id", "date"));
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection connection = context.getConnection();
+        DatabaseMetaData metaData = connection.getMetaData();
+        String table = metaData.storesUpperCaseIdentifiers() ? TABLE.toUpperCase(Locale.ROOT) : TABLE;
+        if (!tableExists(metaData, connection.getSchema(), table)) {
+            return;
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            int deleted = statement.executeUpdate("delete from records where exists (select 1 from records d " +
+                    "where d.indicator_id = records.indicator_id and d.date = records.date and d.id > records.id)");
+            logger.info("Deleted {} duplicate records", deleted);
+
+            if (!hasUniqueKey(metaData, connection.getSchema(), table)) {
+                statement.executeUpdate("alter table records add constraint uk_records_indicator_date unique (indicator_id, date)");
+            }
+        }
+    }
+
+    private static boolean tableExists(DatabaseMetaData metaData, String schema, String table) throws SQLException {
+        try (ResultSet tables = metaData.getTables(null, schema, table, null)) {
+            return tables.next();
+        }
+    }
+
+    /**
+     * @return whether a unique index covers exactly the key columns, Hibernate may have added it already
+     */
+    private static boolean hasUniqueKey(DatabaseMetaData metaData, String schema, String table) throws SQLException {
+        Map<String, Set<String>> indexColumns = new HashMap<>();
+        try (ResultSet indexes = metaData.getIndexInfo(null, schema, table, true, false)) {
+            while (indexes.next()) {
+                String indexName = indexes.getString("INDEX_NAME");
+                String columnName = indexes.getString("COLUMN_NAME");
+                if (indexName != null && columnName != null) {
+                    indexColumns.computeIfAbsent(indexName, name -> new HashSet<>()).add(columnName.toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return indexColumns.containsValue(KEY_COLUMNS);
+    }
+}
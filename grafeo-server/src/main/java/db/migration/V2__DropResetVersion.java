@@ -0,0 +1,38 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+
+/**
+ * Drops the never written indicators.reset_version column, Hibernate updates do not remove unmapped columns.
+ */
+public class V2__DropResetVersion extends BaseJavaMigration {
+
+    private static final String TABLE = "indicators";
+    private static final String COLUMN = "reset_version";
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection connection = context.getConnection();
+        DatabaseMetaData metaData = connection.getMetaData();
+        boolean upperCase = metaData.storesUpperCaseIdentifiers();
+        String table = upperCase ? TABLE.toUpperCase(Locale.ROOT) : TABLE;
+        String column = upperCase ? COLUMN.toUpperCase(Locale.ROOT) : COLUMN;
+        try (ResultSet columns = metaData.getColumns(null, connection.getSchema(), table, column)) {
+            if (!columns.next()) {
+                return;
+            }
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("alter table indicators drop column reset_version");
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package top.valiev.grafeo.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class ImportConfig {
+
+    /**
+     * Runs uploads submitted as jobs, bounded so imports cannot take over the server.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor importExecutor(@Value("${app.imports.threads:2}") int threads,
+                                                 @Value("${app.imports.queue:20}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("import-");
+        return executor;
+    }
+}
@@ -0,0 +1,28 @@
+package top.valiev.grafeo.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import top.valiev.grafeo.payload.ImportJobResponse;
+import top.valiev.grafeo.security.CurrentUser;
+import top.valiev.grafeo.security.UserPrincipal;
+import top.valiev.grafeo.service.ImportJobService;
+import top.valiev.grafeo.util.ModelMapper;
+
+@RestController
+@RequestMapping("/api/imports")
+public class ImportController {
+
+    @Autowired
+    private ImportJobService importJobService;
+
+    @GetMapping("/{jobId}")
+    @PreAuthorize("hasRole('USER')")
+    public ImportJobResponse getImportJob(@CurrentUser UserPrincipal currentUser,
+                                          @PathVariable String jobId) {
+        return ModelMapper.mapImportJobToImportJobResponse(importJobService.getJob(jobId, currentUser.getId()));
+    }
+}
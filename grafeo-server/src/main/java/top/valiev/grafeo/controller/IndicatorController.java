@@ -5,32 +5,65 @@ import com.google.common.base.Preconditions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.InputStreamResource;
-import org.springframework.core.io.Resource;
-import org.springframework.http.MediaType;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import top.valiev.grafeo.exeption.BadRequestException;
 import top.valiev.grafeo.exeption.ForbiddenException;
 import top.valiev.grafeo.exeption.ResourceNotFoundException;
 import top.valiev.grafeo.model.Indicator;
-import top.valiev.grafeo.model.Record;
 import top.valiev.grafeo.model.User;
 import top.valiev.grafeo.payload.ApiResponse;
+import top.valiev.grafeo.payload.ChangesResponse;
+import top.valiev.grafeo.payload.ForecastResponse;
+import top.valiev.grafeo.payload.ImportJobResponse;
 import top.valiev.grafeo.payload.IndicatorRequest;
 import top.valiev.grafeo.payload.IndicatorResponse;
+import top.valiev.grafeo.payload.RecordBatchRequest;
+import top.valiev.grafeo.payload.RecordBatchResponse;
+import top.valiev.grafeo.payload.RecordMutationResponse;
 import top.valiev.grafeo.payload.RecordRequest;
+import top.valiev.grafeo.payload.RecordResponse;
+import top.valiev.grafeo.payload.RecordStatsResponse;
+import top.valiev.grafeo.payload.ResampleResponse;
+import top.valiev.grafeo.payload.RollupResponse;
+import top.valiev.grafeo.payload.SeriesResponse;
+import top.valiev.grafeo.repository.IndicatorHeader;
 import top.valiev.grafeo.repository.IndicatorRepository;
 import top.valiev.grafeo.repository.UserRepository;
 import top.valiev.grafeo.security.CurrentUser;
 import top.valiev.grafeo.security.UserPrincipal;
 import top.valiev.grafeo.service.FileService;
+import top.valiev.grafeo.service.ForecastService;
+import top.valiev.grafeo.service.ImportJob;
+import top.valiev.grafeo.service.ImportJobService;
 import top.valiev.grafeo.service.IndicatorService;
+import top.valiev.grafeo.service.RecordService;
+import top.valiev.grafeo.service.SeriesService;
+import top.valiev.grafeo.service.series.SeriesFileFormat;
+import top.valiev.grafeo.util.AppConstants;
+import top.valiev.grafeo.util.ETags;
 import top.valiev.grafeo.util.ModelMapper;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
-import java.io.InputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/indicators")
@@ -38,6 +71,8 @@ public class IndicatorController {
 
     private static final String YOU_HAVE_NO_ACCESS = "You have no access";
     private static final String INDICATOR = "Indicator";
+    private static final String PREFER_MINIMAL = "Prefer=return=minimal";
+    private static final String PREFER_ASYNC = "Prefer=respond-async";
 
     private final IndicatorRepository indicatorRepository;
 
@@ -47,14 +82,26 @@ public class IndicatorController {
 
     private final FileService fileService;
 
+    private final SeriesService seriesService;
+
+    private final RecordService recordService;
+
+    private final ImportJobService importJobService;
+
+    private final ForecastService forecastService;
+
     private static final Logger logger = LoggerFactory.getLogger(IndicatorController.class);
 
     @Autowired
-    public IndicatorController(IndicatorRepository indicatorRepository, UserRepository userRepository, IndicatorService indicatorService, FileService fileService) {
+    public IndicatorController(IndicatorRepository indicatorRepository, UserRepository userRepository, IndicatorService indicatorService, FileService fileService, SeriesService seriesService, RecordService recordService, ImportJobService importJobService, ForecastService forecastService) {
         this.indicatorRepository = indicatorRepository;
         this.userRepository = userRepository;
         this.indicatorService = indicatorService;
         this.fileService = fileService;
+        this.seriesService = seriesService;
+        this.recordService = recordService;
+        this.importJobService = importJobService;
+        this.forecastService = forecastService;
     }
 
     @PostMapping
@@ -67,12 +114,51 @@ public class IndicatorController {
         return ModelMapper.mapIndicatorToIndicatorResponse(result, creator);
     }
 
+    /**
+     * Ownership is checked on the headers before anything else is loaded, the records and chunks
+     * of all indicators then come with {@code findByIdIn} in batched selects.
+     */
+    @GetMapping(params = "ids")
+    @PreAuthorize("hasRole('USER')")
+    public List<IndicatorResponse> getIndicatorsByIds(@CurrentUser UserPrincipal currentUser,
+                                                      @RequestParam(value = "ids") List<Long> ids) {
+        List<Long> indicatorIds = findIndicatorHeaders(currentUser, ids).stream()
+                .map(IndicatorHeader::getId)
+                .collect(Collectors.toList());
+
+        Map<Long, Indicator> indicators = indicatorRepository.findByIdIn(indicatorIds).stream()
+                .collect(Collectors.toMap(Indicator::getId, Function.identity()));
+        // every indicator belongs to the current user after the check above
+        User creator = getIndicatorCreator(currentUser.getId());
+        return indicatorIds.stream()
+                .map(indicatorId -> ModelMapper.mapIndicatorToIndicatorResponse(indicators.get(indicatorId), creator))
+                .collect(Collectors.toList());
+    }
+
+    @GetMapping("/resample")
+    @PreAuthorize("hasRole('USER')")
+    public ResampleResponse getResampledSeries(@CurrentUser UserPrincipal currentUser,
+                                               @RequestParam(value = "ids") List<Long> ids,
+                                               @RequestParam(value = "step", defaultValue = "week") String step,
+                                               @RequestParam(value = "fill", defaultValue = "none") String fill,
+                                               @RequestParam(value = "agg", defaultValue = "last") String aggregation,
+                                               @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                               @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return seriesService.getResampledSeries(findIndicatorHeaders(currentUser, ids), step, fill, aggregation, from, to);
+    }
+
     @GetMapping("/{indicatorId}")
     @PreAuthorize("hasRole('USER')")
     public IndicatorResponse getIndicatorById(@CurrentUser UserPrincipal currentUser,
-                                              @PathVariable Long indicatorId) {
+                                              @PathVariable Long indicatorId,
+                                              WebRequest webRequest) {
+        IndicatorHeader header = findIndicatorHeader(indicatorId);
+        checkUserAccessForIndicator(currentUser, header.getCreatedBy());
+        if (webRequest.checkNotModified(ETags.of(header.getId(), header.getChangeVersion(), header.getUpdatedAt()))) {
+            return null;
+        }
+
         Indicator indicator = findIndicator(indicatorId);
-        checkUserAccessForIndicator(currentUser, indicator);
         // Retrieve indicator creator details
         User creator = getIndicatorCreator(indicator.getCreatedBy());
 
@@ -80,6 +166,46 @@ public class IndicatorController {
         return ModelMapper.mapIndicatorToIndicatorResponse(indicator, creator);
     }
 
+    @GetMapping("/{indicatorId}/series")
+    @PreAuthorize("hasRole('USER')")
+    public SeriesResponse getIndicatorSeries(@CurrentUser UserPrincipal currentUser,
+                                             @PathVariable Long indicatorId,
+                                             @RequestParam(value = "points", defaultValue = AppConstants.DEFAULT_SERIES_POINTS) int points,
+                                             @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                             @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        IndicatorHeader indicator = findIndicatorHeader(indicatorId);
+        checkUserAccessForIndicator(currentUser, indicator.getCreatedBy());
+
+        return seriesService.getDownsampledSeries(indicator, from, to, points);
+    }
+
+    @GetMapping("/{indicatorId}/derived")
+    @PreAuthorize("hasRole('USER')")
+    public SeriesResponse getDerivedSeries(@CurrentUser UserPrincipal currentUser,
+                                           @PathVariable Long indicatorId,
+                                           @RequestParam(value = "op") String operator,
+                                           @RequestParam(value = "window", defaultValue = AppConstants.DEFAULT_OPERATOR_WINDOW) int window,
+                                           @RequestParam(value = "points", defaultValue = AppConstants.DEFAULT_SERIES_POINTS) int points,
+                                           @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                           @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        IndicatorHeader indicator = findIndicatorHeader(indicatorId);
+        checkUserAccessForIndicator(currentUser, indicator.getCreatedBy());
+
+        return seriesService.getDerivedSeries(indicator, operator, window, from, to, points);
+    }
+
+    @GetMapping("/{indicatorId}/forecast")
+    @PreAuthorize("hasRole('USER')")
+    public ForecastResponse getForecast(@CurrentUser UserPrincipal currentUser,
+                                        @PathVariable Long indicatorId,
+                                        @RequestParam(value = "horizon", defaultValue = AppConstants.DEFAULT_FORECAST_HORIZON) int horizon,
+                                        @RequestParam(value = "model", defaultValue = "linear") String model) {
+        IndicatorHeader indicator = findIndicatorHeader(indicatorId);
+        checkUserAccessForIndicator(currentUser, indicator.getCreatedBy());
+
+        return forecastService.getForecast(indicator, model, horizon);
+    }
+
     @PutMapping
     @PreAuthorize("hasRole('USER')")
     public IndicatorResponse editIndicator(@CurrentUser UserPrincipal currentUser,
@@ -111,35 +237,123 @@ public class IndicatorController {
 
     @GetMapping("/{indicatorId}/download")
     @PreAuthorize("hasRole('USER')")
-    public ResponseEntity<Resource> downloadIndicatorById(@CurrentUser UserPrincipal currentUser,
-                                                          @PathVariable Long indicatorId) {
-        Indicator indicator = findIndicator(indicatorId);
-        checkUserAccessForIndicator(currentUser, indicator);
-        InputStream input = fileService.getIndicatorJson(indicator);
-
-        InputStreamResource resource = new InputStreamResource(input);
+    public void downloadIndicatorById(@CurrentUser UserPrincipal currentUser,
+                                      @PathVariable Long indicatorId,
+                                      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                      HttpServletResponse response) throws IOException {
+        IndicatorHeader indicator = findIndicatorHeader(indicatorId);
+        checkUserAccessForIndicator(currentUser, indicator.getCreatedBy());
+
+        boolean gzip = acceptsGzip(acceptEncoding);
+        response.setContentType("application/octet-stream");
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        try (OutputStream output = gzip ? new GZIPOutputStream(response.getOutputStream()) : response.getOutputStream()) {
+            fileService.writeIndicatorJson(indicator, output);
+        }
+    }
 
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType("application/octet-stream"))
-                .body(resource);
+    @GetMapping(value = "/{indicatorId}/download", produces = SeriesFileFormat.MEDIA_TYPE)
+    @PreAuthorize("hasRole('USER')")
+    public void downloadIndicatorByIdBinary(@CurrentUser UserPrincipal currentUser,
+                                            @PathVariable Long indicatorId,
+                                            HttpServletResponse response) throws IOException {
+        IndicatorHeader indicator = findIndicatorHeader(indicatorId);
+        checkUserAccessForIndicator(currentUser, indicator.getCreatedBy());
+
+        response.setContentType(SeriesFileFormat.MEDIA_TYPE);
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        try (OutputStream output = response.getOutputStream()) {
+            fileService.writeIndicatorBinary(indicator, output);
+        }
     }
 
     @PostMapping("/{indicatorId}/upload")
     @PreAuthorize("hasRole('USER')")
     public IndicatorResponse uploadIndicatorById(@CurrentUser UserPrincipal currentUser,
                                                  @PathVariable Long indicatorId,
-                                                 @RequestParam("file") MultipartFile file) {
+                                                 @RequestParam("file") MultipartFile file) throws IOException {
+        IndicatorHeader header = findIndicatorHeader(indicatorId);
+        checkUserAccessForIndicator(currentUser, header.getCreatedBy());
+
+        fileService.importIndicator(header, file, currentUser.getId(),
+                imported -> logger.debug("Uploading indicator {}: {} records", indicatorId, imported));
+
         Indicator indicator = findIndicator(indicatorId);
-        checkUserAccessForIndicator(currentUser, indicator);
+        User creator = getIndicatorCreator(indicator.getCreatedBy());
+        return ModelMapper.mapIndicatorToIndicatorResponse(indicator, creator);
+    }
+
 
-        final Indicator[] updateIndicator = {indicator};
-        fileService.storeFile(file).ifPresent(rawIndicator -> updateIndicator[0] = indicatorService.updateIndicator(indicator, rawIndicator));
+    @PostMapping(value = "/{indicatorId}/upload", headers = PREFER_ASYNC)
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<ImportJobResponse> uploadIndicatorByIdAsync(@CurrentUser UserPrincipal currentUser,
+                                                                      @PathVariable Long indicatorId,
+                                                                      @RequestParam("file") MultipartFile file) throws IOException {
+        IndicatorHeader header = findIndicatorHeader(indicatorId);
+        checkUserAccessForIndicator(currentUser, header.getCreatedBy());
+
+        ImportJob job = importJobService.submit(header, file, currentUser.getId());
+        URI location = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/api/imports/{jobId}")
+                .buildAndExpand(job.getId()).toUri();
+        return ResponseEntity.accepted()
+                .location(location)
+                .header("Preference-Applied", "respond-async")
+                .body(ModelMapper.mapImportJobToImportJobResponse(job));
+    }
+
+    @GetMapping("/{indicatorId}/rollup")
+    @PreAuthorize("hasRole('USER')")
+    public List<RollupResponse> getRollups(@CurrentUser UserPrincipal currentUser,
+                                           @PathVariable Long indicatorId,
+                                           @RequestParam(value = "bucket", defaultValue = "month") String bucket,
+                                           @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                           @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        IndicatorHeader indicator = findIndicatorHeader(indicatorId);
+        checkUserAccessForIndicator(currentUser, indicator.getCreatedBy());
+
+        return indicatorService.getRollups(indicator, bucket, from, to);
+    }
 
-        User creator = getIndicatorCreator(updateIndicator[0].getCreatedBy());
+    @GetMapping("/{indicatorId}/stats")
+    @PreAuthorize("hasRole('USER')")
+    public RecordStatsResponse getStats(@CurrentUser UserPrincipal currentUser,
+                                        @PathVariable Long indicatorId,
+                                        @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                        @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        IndicatorHeader indicator = findIndicatorHeader(indicatorId);
+        checkUserAccessForIndicator(currentUser, indicator.getCreatedBy());
+
+        return recordService.getStats(indicator, from, to);
+    }
 
-        return ModelMapper.mapIndicatorToIndicatorResponse(updateIndicator[0], creator);
+    @GetMapping("/{indicatorId}/records")
+    @PreAuthorize("hasRole('USER')")
+    public List<RecordResponse> getRecords(@CurrentUser UserPrincipal currentUser,
+                                           @PathVariable Long indicatorId,
+                                           @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                           @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                           @RequestParam(value = "limit", defaultValue = AppConstants.DEFAULT_RECORDS_LIMIT) int limit,
+                                           @RequestParam(value = "order", defaultValue = "asc") String order) {
+        IndicatorHeader indicator = findIndicatorHeader(indicatorId);
+        checkUserAccessForIndicator(currentUser, indicator.getCreatedBy());
+
+        return recordService.getRecords(indicator, from, to, limit, order);
     }
 
+    @GetMapping("/{indicatorId}/changes")
+    @PreAuthorize("hasRole('USER')")
+    public ChangesResponse getChanges(@CurrentUser UserPrincipal currentUser,
+                                      @PathVariable Long indicatorId,
+                                      @RequestParam(value = "since", defaultValue = "0") long since) {
+        IndicatorHeader indicator = findIndicatorHeader(indicatorId);
+        checkUserAccessForIndicator(currentUser, indicator.getCreatedBy());
+
+        return recordService.getChanges(indicator, since);
+    }
 
     @PostMapping("/{indicatorId}/records")
     @PreAuthorize("hasRole('USER')")
@@ -147,36 +361,56 @@ public class IndicatorController {
                                        @PathVariable Long indicatorId,
                                        @Valid @RequestBody RecordRequest recordRequest) {
 
-        Indicator indicator = findIndicator(indicatorId);
-        checkUserAccessForIndicator(currentUser, indicator);
-
-        Preconditions.checkNotNull(recordRequest.getValue());
-        Preconditions.checkNotNull(recordRequest.getDate());
+        IndicatorHeader header = findIndicatorHeader(indicatorId);
+        checkUserAccessForIndicator(currentUser, header.getCreatedBy());
 
-        Record record = new Record(recordRequest.getValue(), recordRequest.getDate());
-
-        indicator.addRecord(record);
-        indicator = indicatorRepository.save(indicator);
+        writeRecord(header, recordRequest, currentUser);
+        Indicator indicator = findIndicator(indicatorId);
 
         Long createdBy = indicator.getCreatedBy();
         User creator = getIndicatorCreator(createdBy);
-        logger.debug("Added record: {} - {} for indicator {}", record.getDate(), record.getValue(), indicator.getId());
+        logger.debug("Added record: {} - {} for indicator {}", recordRequest.getDate(), recordRequest.getValue(), indicator.getId());
         return ModelMapper.mapIndicatorToIndicatorResponse(indicator, creator);
     }
 
+    @PostMapping(value = "/{indicatorId}/records", headers = PREFER_MINIMAL)
+    @PreAuthorize("hasRole('USER')")
+    public RecordMutationResponse addRecordMinimal(@CurrentUser UserPrincipal currentUser,
+                                                   @PathVariable Long indicatorId,
+                                                   @Valid @RequestBody RecordRequest recordRequest) {
+
+        IndicatorHeader header = findIndicatorHeader(indicatorId);
+        checkUserAccessForIndicator(currentUser, header.getCreatedBy());
+
+        Optional<RecordResponse> record = writeRecord(header, recordRequest, currentUser);
+        return recordService.getMutationResponse(header, record.orElse(null));
+    }
+
+    @PostMapping("/{indicatorId}/records:batch")
+    @PreAuthorize("hasRole('USER')")
+    public RecordBatchResponse addRecords(@CurrentUser UserPrincipal currentUser,
+                                          @PathVariable Long indicatorId,
+                                          @Valid @RequestBody RecordBatchRequest batchRequest) {
+        IndicatorHeader header = findIndicatorHeader(indicatorId);
+        checkUserAccessForIndicator(currentUser, header.getCreatedBy());
+
+        int changed = recordService.upsertRecords(header, batchRequest, currentUser.getId());
+
+        logger.debug("Added {} of {} records for indicator {}", changed, batchRequest.getRecords().size(), indicatorId);
+        return new RecordBatchResponse(indicatorId, batchRequest.getRecords().size(), changed);
+    }
+
     @DeleteMapping("/{indicatorId}/records")
     @PreAuthorize("hasRole('USER')")
     public IndicatorResponse deleteRecord(@CurrentUser UserPrincipal currentUser,
                                           @PathVariable Long indicatorId,
                                           @Valid @RequestBody RecordRequest recordRequest) {
 
-        Indicator indicator = findIndicator(indicatorId);
-        checkUserAccessForIndicator(currentUser, indicator);
-
-        Preconditions.checkNotNull(recordRequest.getDate());
+        IndicatorHeader header = findIndicatorHeader(indicatorId);
+        checkUserAccessForIndicator(currentUser, header.getCreatedBy());
 
-        indicator.removeRecord(recordRequest.getDate());
-        indicator = indicatorRepository.save(indicator);
+        eraseRecord(header, recordRequest, currentUser);
+        Indicator indicator = findIndicator(indicatorId);
 
         Long createdBy = indicator.getCreatedBy();
         User creator = getIndicatorCreator(createdBy);
@@ -184,14 +418,110 @@ public class IndicatorController {
         return ModelMapper.mapIndicatorToIndicatorResponse(indicator, creator);
     }
 
+    @DeleteMapping(value = "/{indicatorId}/records", headers = PREFER_MINIMAL)
+    @PreAuthorize("hasRole('USER')")
+    public RecordMutationResponse deleteRecordMinimal(@CurrentUser UserPrincipal currentUser,
+                                                      @PathVariable Long indicatorId,
+                                                      @Valid @RequestBody RecordRequest recordRequest) {
+
+        IndicatorHeader header = findIndicatorHeader(indicatorId);
+        checkUserAccessForIndicator(currentUser, header.getCreatedBy());
+
+        Optional<RecordResponse> record = eraseRecord(header, recordRequest, currentUser);
+        return recordService.getMutationResponse(header, record.orElse(null));
+    }
+
+    /**
+     * @return written record, empty if the same value was already stored
+     */
+    private Optional<RecordResponse> writeRecord(IndicatorHeader header, RecordRequest recordRequest, UserPrincipal currentUser) {
+        Preconditions.checkNotNull(recordRequest.getValue());
+        Preconditions.checkNotNull(recordRequest.getDate());
+
+        return recordService.upsertRecord(header, recordRequest.getDate(), recordRequest.getValue(), currentUser.getId());
+    }
+
+    /**
+     * @return deleted record, empty if there was no record for the date
+     */
+    private Optional<RecordResponse> eraseRecord(IndicatorHeader header, RecordRequest recordRequest, UserPrincipal currentUser) {
+        Preconditions.checkNotNull(recordRequest.getDate());
+
+        return recordService.deleteRecord(header, recordRequest.getDate(), currentUser.getId());
+    }
 
     private Indicator findIndicator(@PathVariable Long indicatorId) {
         return indicatorRepository.findById(indicatorId).orElseThrow(
                 () -> new ResourceNotFoundException(INDICATOR, "id", indicatorId));
     }
 
+    private IndicatorHeader findIndicatorHeader(Long indicatorId) {
+        return indicatorRepository.findHeaderById(indicatorId).orElseThrow(
+                () -> new ResourceNotFoundException(INDICATOR, "id", indicatorId));
+    }
+
+    /**
+     * @return headers of the distinct ids in the requested order, all owned by the current user
+     */
+    private List<IndicatorHeader> findIndicatorHeaders(UserPrincipal currentUser, List<Long> ids) {
+        List<Long> indicatorIds = ids.stream().distinct().collect(Collectors.toList());
+        if (indicatorIds.isEmpty() || indicatorIds.size() > AppConstants.MAX_PAGE_SIZE) {
+            throw new BadRequestException("Indicators number must be between 1 and " + AppConstants.MAX_PAGE_SIZE);
+        }
+
+        Map<Long, IndicatorHeader> headers = indicatorRepository.findHeadersByIdIn(indicatorIds).stream()
+                .collect(Collectors.toMap(IndicatorHeader::getId, Function.identity()));
+        List<IndicatorHeader> result = new ArrayList<>(indicatorIds.size());
+        for (Long indicatorId : indicatorIds) {
+            IndicatorHeader header = headers.get(indicatorId);
+            if (header == null) {
+                throw new ResourceNotFoundException(INDICATOR, "id", indicatorId);
+            }
+            checkUserAccessForIndicator(currentUser, header.getCreatedBy());
+            result.add(header);
+        }
+        return result;
+    }
+
+    /**
+     * Reads the codings of an Accept-Encoding header, an explicit gzip wins over {@code *} and q=0 refuses the coding.
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        boolean wildcard = false;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            if (!name.equals("gzip") && !name.equals("*")) {
+                continue;
+            }
+            boolean accepted = true;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=") || parameter.startsWith("Q=")) {
+                    try {
+                        accepted = Double.parseDouble(parameter.substring(2).trim()) > 0;
+                    } catch (NumberFormatException e) {
+                        accepted = false;
+                    }
+                }
+            }
+            if (name.equals("gzip")) {
+                return accepted;
+            }
+            wildcard = accepted;
+        }
+        return wildcard;
+    }
+
     private void checkUserAccessForIndicator(@CurrentUser UserPrincipal currentUser, Indicator indicator) {
-        if (currentUser == null || !indicator.getCreatedBy().equals(currentUser.getId())) {
+        checkUserAccessForIndicator(currentUser, indicator.getCreatedBy());
+    }
+
+    private void checkUserAccessForIndicator(UserPrincipal currentUser, Long createdBy) {
+        if (currentUser == null || !createdBy.equals(currentUser.getId())) {
             throw new ForbiddenException(YOU_HAVE_NO_ACCESS);
         }
     }
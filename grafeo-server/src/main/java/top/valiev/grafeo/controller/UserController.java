@@ -1,25 +1,40 @@
 package top.valiev.grafeo.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import top.valiev.grafeo.exeption.ResourceNotFoundException;
 import top.valiev.grafeo.model.User;
 import top.valiev.grafeo.payload.*;
+import top.valiev.grafeo.repository.IndicatorListVersion;
 import top.valiev.grafeo.repository.IndicatorRepository;
+import top.valiev.grafeo.repository.RecordChunkRepository;
 import top.valiev.grafeo.repository.RecordRepository;
 import top.valiev.grafeo.repository.UserRepository;
 import top.valiev.grafeo.security.CurrentUser;
 import top.valiev.grafeo.security.JwtTokenProvider;
 import top.valiev.grafeo.security.UserPrincipal;
+import top.valiev.grafeo.service.CorrelationService;
+import top.valiev.grafeo.service.FileService;
 import top.valiev.grafeo.service.IndicatorService;
 import top.valiev.grafeo.service.UserService;
 import top.valiev.grafeo.util.AppConstants;
+import top.valiev.grafeo.util.ETags;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URI;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/users")
@@ -34,12 +49,21 @@ public class UserController {
     @Autowired
     private RecordRepository recordRepository;
 
+    @Autowired
+    private RecordChunkRepository recordChunkRepository;
+
     @Autowired
     private IndicatorService indicatorService;
 
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private FileService fileService;
+
+    @Autowired
+    private CorrelationService correlationService;
+
     @Autowired
     JwtTokenProvider tokenProvider;
 
@@ -50,6 +74,27 @@ public class UserController {
         return new UserSummary(currentUser.getId(), currentUser.getUsername(), currentUser.getEmail(), currentUser.getName(), currentUser.getIsDemo(), currentUser.getIsSocialLogin(), newAccessToken);
     }
 
+    @GetMapping("/me/export")
+    @PreAuthorize("hasRole('USER')")
+    public void exportCurrentUser(@CurrentUser UserPrincipal currentUser, HttpServletResponse response) throws IOException {
+        response.setContentType("application/zip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("grafeo-export-" + LocalDate.now() + ".zip").build().toString());
+        try (OutputStream output = response.getOutputStream()) {
+            fileService.writeUserExport(currentUser.getId(), output);
+        }
+    }
+
+    @GetMapping("/me/correlations")
+    @PreAuthorize("hasRole('USER')")
+    public CorrelationResponse getCorrelations(@CurrentUser UserPrincipal currentUser,
+                                               @RequestParam(value = "ids", required = false) List<Long> ids,
+                                               @RequestParam(value = "method", defaultValue = "pearson") String method,
+                                               @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                               @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return correlationService.getCorrelations(currentUser.getId(), ids, method, from, to);
+    }
+
     @GetMapping("/profile")
     @PreAuthorize("hasRole('USER')")
     public UserProfile getUserProfile(@CurrentUser UserPrincipal currentUser) {
@@ -58,7 +103,8 @@ public class UserController {
                 .orElseThrow(() -> new ResourceNotFoundException("User", "username", currentUser.getUsername()));
 
         long indicatorCount = indicatorRepository.countByCreatedBy(user.getId());
-        long recordCount = recordRepository.countByCreatedBy(user.getId());
+        long recordCount = recordRepository.countByCreatedBy(user.getId())
+                + recordChunkRepository.sumPointCountByCreatedBy(user.getId());
 
         return new UserProfile(user.getId(), user.getUsername(), user.getEmail(), user.getName(), user.getCreatedAt(), indicatorCount, recordCount);
     }
@@ -95,7 +141,46 @@ public class UserController {
     public PagedResponse<IndicatorResponse> getIndicatorsCreatedBy(@PathVariable(value = "id") Long id,
                                                                    @CurrentUser UserPrincipal currentUser,
                                                                    @RequestParam(value = "page", defaultValue = AppConstants.DEFAULT_PAGE_NUMBER) int page,
-                                                                   @RequestParam(value = "size", defaultValue = AppConstants.DEFAULT_PAGE_SIZE) int size) {
+                                                                   @RequestParam(value = "size", defaultValue = AppConstants.DEFAULT_PAGE_SIZE) int size,
+                                                                   WebRequest webRequest) {
+        if (isListNotModified(webRequest, id, page, size)) {
+            return null;
+        }
+
         return indicatorService.getIndicatorsCreatedBy(id, page, size);
     }
+
+    @GetMapping(value = "/{id}/indicators", params = {"cursor", "!view"})
+    @PreAuthorize("hasRole('USER')")
+    public CursorResponse<IndicatorResponse> getIndicatorsCreatedBy(@PathVariable(value = "id") Long id,
+                                                                    @RequestParam(value = "cursor") String cursor,
+                                                                    @RequestParam(value = "size", defaultValue = AppConstants.DEFAULT_PAGE_SIZE) int size,
+                                                                    @RequestParam(value = "sort", defaultValue = IndicatorService.SORT_BY_UPDATED) String sort,
+                                                                    @RequestParam(value = "count", defaultValue = "false") boolean count,
+                                                                    WebRequest webRequest) {
+        if (isListNotModified(webRequest, id, cursor, size, sort, count)) {
+            return null;
+        }
+
+        return indicatorService.getIndicatorsCreatedBy(id, cursor, size, sort, count);
+    }
+
+    @GetMapping(value = "/{id}/indicators", params = "view=summary")
+    @PreAuthorize("hasRole('USER')")
+    public PagedResponse<IndicatorSummary> getIndicatorSummariesCreatedBy(@PathVariable(value = "id") Long id,
+                                                                          @RequestParam(value = "page", defaultValue = AppConstants.DEFAULT_PAGE_NUMBER) int page,
+                                                                          @RequestParam(value = "size", defaultValue = AppConstants.DEFAULT_PAGE_SIZE) int size,
+                                                                          @RequestParam(value = "sparkline", defaultValue = AppConstants.DEFAULT_SPARKLINE_POINTS) int sparkline,
+                                                                          WebRequest webRequest) {
+        if (isListNotModified(webRequest, id, page, size, "summary", sparkline)) {
+            return null;
+        }
+
+        return indicatorService.getIndicatorSummariesCreatedBy(id, page, size, sparkline);
+    }
+
+    private boolean isListNotModified(WebRequest webRequest, Long userId, Object... view) {
+        IndicatorListVersion listVersion = indicatorRepository.findListVersionByCreatedBy(userId);
+        return webRequest.checkNotModified(ETags.of(userId, Arrays.toString(view), listVersion.getCount(), listVersion.getLastUpdatedAt()));
+    }
 }
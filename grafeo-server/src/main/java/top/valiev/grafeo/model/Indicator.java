@@ -6,19 +6,19 @@ import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.Fetch;
 import org.hibernate.annotations.FetchMode;
 import top.valiev.grafeo.model.audit.UserDateAudit;
+import top.valiev.grafeo.model.series.Series;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.Size;
-import java.time.Instant;
-import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 
 @EqualsAndHashCode(callSuper = true)
 @Entity
-@Table(name = "indicators")
+@Table(name = "indicators", indexes = {
+        @Index(name = "idx_indicators_created_by_updated", columnList = "createdBy, updatedAt, id"),
+        @Index(name = "idx_indicators_created_by_name", columnList = "createdBy, name, id")
+})
 @Data
 @NoArgsConstructor
 @RequiredArgsConstructor
@@ -47,49 +47,62 @@ public class Indicator extends UserDateAudit {
     )
     @Fetch(FetchMode.SELECT)
     @BatchSize(size = 30)
+    @OrderBy("date, id")
     @Expose
     private List<Record> records = new ArrayList<>();
 
-    public void addRecord(Record newRecord) {
-        Optional<Record> currentRecord = records.stream()
-                .filter(r -> r.getDate().equals(newRecord.getDate()))
-                .findFirst();
+    @Enumerated(EnumType.STRING)
+    @Column(length = 10)
+    private StorageMode storageMode;
 
-        if (currentRecord.isPresent()) {
-            Record oldRecord = currentRecord.get();
-            if (oldRecord.getValue().equals(newRecord.getValue())) {
-                return;
-            } else {
-                records.remove(oldRecord);
-            }
-        }
-        records.add(newRecord);
-        this.setUpdatedAt(Instant.now());
-        newRecord.setIndicator(this);
-        newRecord.setCreatedBy(this.getCreatedBy());
-        newRecord.setUpdatedBy(this.getUpdatedBy());
-    }
+    /**
+     * Incremented on every change of the records.
+     */
+    @Column(name = "change_version")
+    private Long changeVersion;
+
+    @OneToMany(
+            mappedBy = "indicator",
+            cascade = CascadeType.ALL,
+            fetch = FetchType.EAGER,
+            orphanRemoval = true
+    )
+    @Fetch(FetchMode.SELECT)
+    @BatchSize(size = 30)
+    @OrderBy("bucket")
+    private List<RecordChunk> chunks = new ArrayList<>();
+
+    @OneToMany(
+            mappedBy = "indicator",
+            cascade = CascadeType.ALL,
+            orphanRemoval = true
+    )
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private List<RecordRollup> rollups = new ArrayList<>();
+
+    @OneToMany(
+            mappedBy = "indicator",
+            cascade = CascadeType.ALL,
+            orphanRemoval = true
+    )
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private List<RecordTombstone> tombstones = new ArrayList<>();
 
-    public void addRecords(Iterable<Record> newRecords) {
-        for (Record newRecord : newRecords) {
-            records.add(newRecord);
-            newRecord.setIndicator(this);
-            newRecord.setCreatedBy(this.getCreatedBy());
-            newRecord.setUpdatedBy(this.getUpdatedBy());
-        }
-        this.setUpdatedAt(Instant.now());
+    public boolean isChunked() {
+        return storageMode == StorageMode.CHUNKED;
     }
 
-    public void removeRecord(LocalDate date) {
-        records.stream()
-                .filter(r -> r.getDate().equals(date))
-                .findFirst()
-                .ifPresent(r -> records.remove(r));
-        this.setUpdatedAt(Instant.now());
+    public long getChangeVersion() {
+        return changeVersion == null ? 0 : changeVersion;
     }
 
-    public void clearRecords() {
-        records.clear();
-        this.setUpdatedAt(Instant.now());
+    public Series decodeChunks() {
+        Series decoded = new Series();
+        chunks.stream()
+                .sorted(Comparator.comparingInt(RecordChunk::getBucket))
+                .forEach(chunk -> decoded.appendAll(chunk.decode()));
+        return decoded;
     }
 }
@@ -9,7 +9,9 @@ import javax.validation.constraints.NotNull;
 import java.time.LocalDate;
 
 @Entity
-@Table(name = "records")
+@Table(name = "records",
+        uniqueConstraints = @UniqueConstraint(name = "uk_records_indicator_date", columnNames = {"indicator_id", "date"}),
+        indexes = @Index(name = "idx_records_indicator_version", columnList = "indicator_id, change_version"))
 
 @Data
 @NoArgsConstructor
@@ -30,6 +32,9 @@ public class Record extends UserDateAudit {
     @Expose
     private LocalDate date;
 
+    @Column(name = "change_version")
+    private Long changeVersion;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "indicator_id", nullable = false)
     private Indicator indicator;
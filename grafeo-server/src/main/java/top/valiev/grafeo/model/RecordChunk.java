@@ -0,0 +1,72 @@
+package top.valiev.grafeo.model;
+
+import lombok.*;
+import top.valiev.grafeo.model.audit.UserDateAudit;
+import top.valiev.grafeo.model.series.Series;
+import top.valiev.grafeo.model.series.SeriesCodec;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+
+@Entity
+@Table(name = "record_chunks",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"indicator_id", "bucket"}),
+        indexes = @Index(name = "idx_record_chunks_indicator_days", columnList = "indicator_id, first_day, last_day"))
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(of = {"id"}, callSuper = true)
+@ToString(exclude = {"indicator", "data"})
+public class RecordChunk extends UserDateAudit {
+
+    private static final int MAX_DATA_LENGTH = 32768;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "indicator_id", nullable = false)
+    private Indicator indicator;
+
+    @Column(nullable = false)
+    private int bucket;
+
+    @Column(name = "first_day")
+    private int firstDay;
+
+    @Column(name = "last_day")
+    private int lastDay;
+
+    private int pointCount;
+
+    @Column(name = "change_version")
+    private Long changeVersion;
+
+    @Column(length = MAX_DATA_LENGTH)
+    private byte[] data;
+
+    public RecordChunk(Indicator indicator, int bucket) {
+        this.indicator = indicator;
+        this.bucket = bucket;
+        replace(new Series());
+    }
+
+    public static int bucketOf(LocalDate date) {
+        return date.getYear();
+    }
+
+    public static int bucketOf(int epochDay) {
+        return bucketOf(LocalDate.ofEpochDay(epochDay));
+    }
+
+    public Series decode() {
+        return SeriesCodec.decode(data);
+    }
+
+    public void replace(Series series) {
+        this.data = SeriesCodec.encode(series);
+        this.pointCount = series.size();
+        this.firstDay = series.isEmpty() ? 0 : series.firstDay();
+        this.lastDay = series.isEmpty() ? 0 : series.lastDay();
+    }
+}
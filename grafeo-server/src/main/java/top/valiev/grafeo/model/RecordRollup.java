@@ -0,0 +1,121 @@
+package top.valiev.grafeo.model;
+
+import lombok.*;
+import top.valiev.grafeo.model.series.Series;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+@Entity
+@Table(name = "record_rollups",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"indicator_id", "bucket", "bucket_start"}))
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(of = {"id"})
+@ToString(exclude = {"indicator"})
+public class RecordRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "indicator_id", nullable = false)
+    private Indicator indicator;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 10, nullable = false)
+    private RollupBucket bucket;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDate bucketStart;
+
+    private int pointCount;
+
+    private double minValue;
+
+    private double maxValue;
+
+    private double valueSum;
+
+    private LocalDate firstDate;
+
+    private double firstValue;
+
+    private LocalDate lastDate;
+
+    private double lastValue;
+
+    public RecordRollup(Indicator indicator, RollupBucket bucket, LocalDate bucketStart) {
+        this.indicator = indicator;
+        this.bucket = bucket;
+        this.bucketStart = bucketStart;
+    }
+
+    /**
+     * Builds the non-empty rollups of the bucket in one pass over a sorted series.
+     */
+    public static List<RecordRollup> build(Indicator indicator, RollupBucket bucket, Series series) {
+        List<RecordRollup> rollups = new ArrayList<>();
+        RecordRollup current = null;
+        for (int i = 0; i < series.size(); i++) {
+            LocalDate date = series.dateAt(i);
+            if (current == null || !date.isBefore(current.getBucketEnd())) {
+                current = new RecordRollup(indicator, bucket, bucket.start(date));
+                rollups.add(current);
+            }
+            current.add(date, series.valueAt(i));
+        }
+        return rollups;
+    }
+
+    public LocalDate getBucketEnd() {
+        return bucket.next(bucketStart);
+    }
+
+    public void add(LocalDate date, double value) {
+        if (pointCount == 0) {
+            minValue = value;
+            maxValue = value;
+            firstDate = date;
+            firstValue = value;
+            lastDate = date;
+            lastValue = value;
+        } else {
+            minValue = Math.min(minValue, value);
+            maxValue = Math.max(maxValue, value);
+            if (date.isBefore(firstDate)) {
+                firstDate = date;
+                firstValue = value;
+            }
+            if (date.isAfter(lastDate)) {
+                lastDate = date;
+                lastValue = value;
+            }
+        }
+        pointCount++;
+        valueSum += value;
+    }
+
+    public void recompute(Series series) {
+        reset();
+        int from = series.ceilingIndex((int) bucketStart.toEpochDay());
+        int to = series.ceilingIndex((int) getBucketEnd().toEpochDay());
+        for (int i = from; i < to; i++) {
+            add(series.dateAt(i), series.valueAt(i));
+        }
+    }
+
+    public void reset() {
+        pointCount = 0;
+        minValue = 0;
+        maxValue = 0;
+        valueSum = 0;
+        firstDate = null;
+        firstValue = 0;
+        lastDate = null;
+        lastValue = 0;
+    }
+}
@@ -0,0 +1,39 @@
+package top.valiev.grafeo.model;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+
+/**
+ * Marks a deleted record so clients can sync deletions by change version.
+ */
+@Entity
+@Table(name = "record_tombstones",
+        indexes = @Index(name = "idx_record_tombstones_indicator_version", columnList = "indicator_id, change_version"))
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(of = {"id"})
+@ToString(exclude = {"indicator"})
+public class RecordTombstone {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "indicator_id", nullable = false)
+    private Indicator indicator;
+
+    @Column(nullable = false)
+    private LocalDate date;
+
+    @Column(name = "change_version", nullable = false)
+    private long changeVersion;
+
+    public RecordTombstone(Indicator indicator, LocalDate date, long changeVersion) {
+        this.indicator = indicator;
+        this.date = date;
+        this.changeVersion = changeVersion;
+    }
+}
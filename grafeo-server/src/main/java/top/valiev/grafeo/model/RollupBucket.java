@@ -0,0 +1,42 @@
+package top.valiev.grafeo.model;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+public enum RollupBucket {
+    WEEK,
+    MONTH,
+    QUARTER,
+    YEAR;
+
+    public LocalDate start(LocalDate date) {
+        switch (this) {
+            case WEEK:
+                return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH:
+                return date.withDayOfMonth(1);
+            case QUARTER:
+                return LocalDate.of(date.getYear(), date.getMonth().firstMonthOfQuarter(), 1);
+            case YEAR:
+                return date.withDayOfYear(1);
+            default:
+                throw new IllegalStateException("Unknown bucket " + this);
+        }
+    }
+
+    public LocalDate next(LocalDate start) {
+        switch (this) {
+            case WEEK:
+                return start.plusWeeks(1);
+            case MONTH:
+                return start.plusMonths(1);
+            case QUARTER:
+                return start.plusMonths(3);
+            case YEAR:
+                return start.plusYears(1);
+            default:
+                throw new IllegalStateException("Unknown bucket " + this);
+        }
+    }
+}
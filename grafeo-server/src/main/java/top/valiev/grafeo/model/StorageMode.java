@@ -0,0 +1,6 @@
+package top.valiev.grafeo.model;
+
+public enum StorageMode {
+    ROWS,
+    CHUNKED
+}
@@ -0,0 +1,12 @@
+package top.valiev.grafeo.model.series;
+
+import java.io.IOException;
+
+/**
+ * Receives the points of a series one at a time, dates as epoch days.
+ */
+@FunctionalInterface
+public interface PointConsumer {
+
+    void accept(int day, double value) throws IOException;
+}
@@ -0,0 +1,170 @@
+package top.valiev.grafeo.model.series;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Date-ordered series of points kept in parallel primitive arrays.
+ * Dates are stored as epoch days, at most one value per day.
+ */
+public class Series {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int[] days;
+    private double[] values;
+    private int size;
+
+    public Series() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public Series(int capacity) {
+        this.days = new int[Math.max(capacity, 1)];
+        this.values = new double[Math.max(capacity, 1)];
+    }
+
+    /**
+     * Wraps arrays that are already ordered by day without copying them.
+     */
+    Series(int[] days, double[] values, int size) {
+        this.days = days.length == 0 ? new int[1] : days;
+        this.values = values.length == 0 ? new double[1] : values;
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int dayAt(int index) {
+        return days[index];
+    }
+
+    public double valueAt(int index) {
+        return values[index];
+    }
+
+    public LocalDate dateAt(int index) {
+        return LocalDate.ofEpochDay(days[index]);
+    }
+
+    public int firstDay() {
+        return days[0];
+    }
+
+    public int lastDay() {
+        return days[size - 1];
+    }
+
+    /**
+     * @return index of the day, or {@code -(insertionPoint) - 1} when absent
+     */
+    public int indexOf(int day) {
+        return Arrays.binarySearch(days, 0, size, day);
+    }
+
+    /**
+     * @return index of the first point on or after the day
+     */
+    public int ceilingIndex(int day) {
+        int index = indexOf(day);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * @return index of the first point after the day
+     */
+    public int higherIndex(int day) {
+        int index = indexOf(day);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    public Series slice(int fromIndex, int toIndex) {
+        Series slice = new Series(toIndex - fromIndex);
+        System.arraycopy(days, fromIndex, slice.days, 0, toIndex - fromIndex);
+        System.arraycopy(values, fromIndex, slice.values, 0, toIndex - fromIndex);
+        slice.size = toIndex - fromIndex;
+        return slice;
+    }
+
+    /**
+     * Inserts or replaces the value for the day.
+     *
+     * @return false if the same value was already stored
+     */
+    public boolean put(int day, double value) {
+        int index = indexOf(day);
+        if (index >= 0) {
+            if (Double.compare(values[index], value) == 0) {
+                return false;
+            }
+            values[index] = value;
+            return true;
+        }
+        insertAt(-index - 1, day, value);
+        return true;
+    }
+
+    public boolean remove(int day) {
+        int index = indexOf(day);
+        if (index < 0) {
+            return false;
+        }
+        System.arraycopy(days, index + 1, days, index, size - index - 1);
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+        return true;
+    }
+
+    /**
+     * Appends a point that is known to be later than the last one.
+     */
+    public void append(int day, double value) {
+        if (size > 0 && day <= days[size - 1]) {
+            throw new IllegalArgumentException("Day " + day + " is not after " + days[size - 1]);
+        }
+        ensureCapacity(size + 1);
+        days[size] = day;
+        values[size] = value;
+        size++;
+    }
+
+    public void appendAll(Series other) {
+        if (other.size == 0) {
+            return;
+        }
+        if (size > 0 && other.days[0] <= days[size - 1]) {
+            throw new IllegalArgumentException("Series overlap at day " + other.days[0]);
+        }
+        ensureCapacity(size + other.size);
+        System.arraycopy(other.days, 0, days, size, other.size);
+        System.arraycopy(other.values, 0, values, size, other.size);
+        size += other.size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    private void insertAt(int index, int day, double value) {
+        ensureCapacity(size + 1);
+        System.arraycopy(days, index, days, index + 1, size - index);
+        System.arraycopy(values, index, values, index + 1, size - index);
+        days[index] = day;
+        values[index] = value;
+        size++;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > days.length) {
+            int newCapacity = Math.max(capacity, days.length + (days.length >> 1));
+            days = Arrays.copyOf(days, newCapacity);
+            values = Arrays.copyOf(values, newCapacity);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package top.valiev.grafeo.model.series;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Collects points in any order and builds a {@link Series}, the last point added for a day wins.
+ */
+public class SeriesBuilder {
+
+    private int[] days = new int[16];
+    private double[] values = new double[16];
+    private int size;
+    private boolean ordered = true;
+
+    public void add(int day, double value) {
+        if (size == days.length) {
+            days = Arrays.copyOf(days, size + (size >> 1));
+            values = Arrays.copyOf(values, days.length);
+        }
+        if (size > 0 && day <= days[size - 1]) {
+            ordered = false;
+        }
+        days[size] = day;
+        values[size] = value;
+        size++;
+    }
+
+    /**
+     * Adds the points of the other builder after the points already added.
+     */
+    public void addAll(SeriesBuilder other) {
+        for (int i = 0; i < other.size; i++) {
+            add(other.days[i], other.values[i]);
+        }
+    }
+
+    /**
+     * Passes the points in the order they were added, duplicates included.
+     */
+    public void forEach(PointConsumer consumer) throws IOException {
+        for (int i = 0; i < size; i++) {
+            consumer.accept(days[i], values[i]);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Series build() {
+        if (ordered) {
+            return new Series(Arrays.copyOf(days, size), Arrays.copyOf(values, size), size);
+        }
+
+        // day in the high bits, arrival order in the low bits, so equal days keep their order
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = ((long) days[i] << 32) | i;
+        }
+        Arrays.sort(keys);
+
+        Series series = new Series(size);
+        for (int i = 0; i < size; i++) {
+            if (i + 1 < size && (keys[i + 1] >> 32) == (keys[i] >> 32)) {
+                continue;
+            }
+            series.append((int) (keys[i] >> 32), values[(int) keys[i]]);
+        }
+        return series;
+    }
+}
@@ -0,0 +1,202 @@
+package top.valiev.grafeo.model.series;
+
+import java.util.Arrays;
+
+/**
+ * Binary encoding of a date-ordered series: varint delta-encoded epoch days
+ * followed by Gorilla XOR-compressed doubles.
+ */
+public final class SeriesCodec {
+
+    private static final int VERSION = 1;
+
+    private SeriesCodec() {
+    }
+
+    public static byte[] encode(Series series) {
+        return encode(series, 0, series.size());
+    }
+
+    public static byte[] encode(Series series, int from, int to) {
+        int count = to - from;
+        BitWriter writer = new BitWriter(16 + count * 3);
+        writer.writeVarint(VERSION);
+        writer.writeVarint(count);
+        if (count == 0) {
+            return writer.toByteArray();
+        }
+
+        int previousDay = series.dayAt(from);
+        writer.writeVarint(zigZag(previousDay));
+        for (int i = from + 1; i < to; i++) {
+            int day = series.dayAt(i);
+            writer.writeVarint(day - previousDay);
+            previousDay = day;
+        }
+
+        long previousBits = Double.doubleToRawLongBits(series.valueAt(from));
+        writer.write(previousBits, 64);
+        int previousLeading = -1;
+        int previousTrailing = 0;
+        for (int i = from + 1; i < to; i++) {
+            long bits = Double.doubleToRawLongBits(series.valueAt(i));
+            long xor = bits ^ previousBits;
+            previousBits = bits;
+            if (xor == 0) {
+                writer.write(0, 1);
+                continue;
+            }
+            writer.write(1, 1);
+            int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+            int trailing = Long.numberOfTrailingZeros(xor);
+            if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+                writer.write(0, 1);
+                writer.write(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+            } else {
+                int significant = 64 - leading - trailing;
+                writer.write(1, 1);
+                writer.write(leading, 5);
+                writer.write(significant - 1L, 6);
+                writer.write(xor >>> trailing, significant);
+                previousLeading = leading;
+                previousTrailing = trailing;
+            }
+        }
+        return writer.toByteArray();
+    }
+
+    public static Series decode(byte[] data) {
+        return decode(data, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Decodes untrusted data, the point count is checked against the limit and the remaining bytes before allocating.
+     *
+     * @throws IllegalArgumentException on corrupted data or more than {@code maxCount} points
+     */
+    public static Series decode(byte[] data, int maxCount) {
+        BitReader reader = new BitReader(data);
+        int version = reader.readVarint();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported series encoding version: " + version);
+        }
+        int count = reader.readVarint();
+        // every point takes at least one byte of its day, the first value eight more
+        if (count < 0 || count > maxCount || (count > 0 && count + 8L > reader.remainingBytes())) {
+            throw new IllegalArgumentException("Invalid series point count: " + count);
+        }
+        Series series = new Series(count);
+        if (count == 0) {
+            return series;
+        }
+
+        int[] days = new int[count];
+        days[0] = unZigZag(reader.readVarint());
+        for (int i = 1; i < count; i++) {
+            days[i] = days[i - 1] + reader.readVarint();
+        }
+
+        long bits = reader.read(64);
+        series.append(days[0], Double.longBitsToDouble(bits));
+        int leading = 0;
+        int trailing = 0;
+        for (int i = 1; i < count; i++) {
+            if (reader.read(1) != 0) {
+                if (reader.read(1) != 0) {
+                    leading = (int) reader.read(5);
+                    int significant = (int) reader.read(6) + 1;
+                    trailing = 64 - leading - significant;
+                }
+                bits ^= reader.read(64 - leading - trailing) << trailing;
+            }
+            series.append(days[i], Double.longBitsToDouble(bits));
+        }
+        return series;
+    }
+
+    private static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class BitWriter {
+        private byte[] buffer;
+        private int position;
+
+        BitWriter(int initialBytes) {
+            this.buffer = new byte[Math.max(initialBytes, 8)];
+        }
+
+        void write(long value, int bits) {
+            while (bits > 0) {
+                int index = position >>> 3;
+                if (index >= buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                int free = 8 - (position & 7);
+                int take = Math.min(free, bits);
+                int chunk = (int) ((value >>> (bits - take)) & ((1 << take) - 1));
+                buffer[index] |= (byte) (chunk << (free - take));
+                bits -= take;
+                position += take;
+            }
+        }
+
+        void writeVarint(int value) {
+            while ((value & ~0x7F) != 0) {
+                write((value & 0x7F) | 0x80, 8);
+                value >>>= 7;
+            }
+            write(value, 8);
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, (position + 7) >>> 3);
+        }
+    }
+
+    private static final class BitReader {
+        private final byte[] buffer;
+        private int position;
+
+        BitReader(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        long read(int bits) {
+            long result = 0;
+            while (bits > 0) {
+                int index = position >>> 3;
+                if (index >= buffer.length) {
+                    throw new IllegalArgumentException("Truncated series data");
+                }
+                int available = 8 - (position & 7);
+                int take = Math.min(available, bits);
+                int chunk = ((buffer[index] & 0xFF) >>> (available - take)) & ((1 << take) - 1);
+                result = (result << take) | chunk;
+                bits -= take;
+                position += take;
+            }
+            return result;
+        }
+
+        long remainingBytes() {
+            return ((long) buffer.length * 8 - position) / 8;
+        }
+
+        int readVarint() {
+            int result = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = (int) read(8);
+                result |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint in series data");
+        }
+    }
+}
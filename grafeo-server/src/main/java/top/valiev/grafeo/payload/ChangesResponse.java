@@ -0,0 +1,19 @@
+package top.valiev.grafeo.payload;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Record changes after a version. Deletes are applied before upserts;
+ * with {@code reset} the client drops its copy and takes the upserts as the full series.
+ */
+@Data
+public class ChangesResponse {
+    private Long indicatorId;
+    private long version;
+    private boolean reset;
+    private List<RecordResponse> upserts;
+    private List<LocalDate> deletes;
+}
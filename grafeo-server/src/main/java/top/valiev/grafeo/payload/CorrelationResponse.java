@@ -0,0 +1,17 @@
+package top.valiev.grafeo.payload;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Correlation matrix of indicators in the order of {@code indicatorIds}, a value is null
+ * when the two indicators share too few days or one of them does not change.
+ */
+@Data
+public class CorrelationResponse {
+    private String method;
+    private List<Long> indicatorIds;
+    private List<String> names;
+    private Double[][] values;
+}
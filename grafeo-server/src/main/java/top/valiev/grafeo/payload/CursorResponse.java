@@ -0,0 +1,27 @@
+package top.valiev.grafeo.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorResponse<T> {
+
+    private List<T> content;
+    private int size;
+
+    /**
+     * Opaque token of the next page, null on the last page.
+     */
+    private String next;
+
+    /**
+     * Only counted on request.
+     */
+    private Long totalElements;
+
+}
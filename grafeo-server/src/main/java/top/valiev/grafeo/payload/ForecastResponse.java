@@ -0,0 +1,21 @@
+package top.valiev.grafeo.payload;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Projected points with the bounds of the prediction interval at the given level.
+ */
+@Data
+public class ForecastResponse {
+    private Long indicatorId;
+    private String model;
+    private int step;
+    private double level;
+    private List<LocalDate> dates;
+    private double[] values;
+    private double[] lower;
+    private double[] upper;
+}
@@ -0,0 +1,21 @@
+package top.valiev.grafeo.payload;
+
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+public class ImportJobResponse {
+
+    private String id;
+    private Long indicatorId;
+    private String status;
+    private long recordsRead;
+    private Integer changed;
+    private Double recordsPerSecond;
+    private String error;
+    private Instant submittedAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+
+}
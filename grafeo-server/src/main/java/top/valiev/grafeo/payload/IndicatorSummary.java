@@ -0,0 +1,44 @@
+package top.valiev.grafeo.payload;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import top.valiev.grafeo.model.StorageMode;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+public class IndicatorSummary {
+    private Long id;
+    private String name;
+    private String unit;
+    private Instant creationDateTime;
+    private Instant updatedAt;
+    private long recordCount;
+    private LocalDate lastDate;
+    private Double lastValue;
+    private double[] sparkline;
+
+    @JsonIgnore
+    private StorageMode storageMode;
+
+    public IndicatorSummary(Long id, String name, String unit, StorageMode storageMode, Instant creationDateTime,
+                            Instant updatedAt, long recordCount, LocalDate lastDate, Double lastValue) {
+        this.id = id;
+        this.name = name;
+        this.unit = unit;
+        this.storageMode = storageMode;
+        this.creationDateTime = creationDateTime;
+        this.updatedAt = updatedAt;
+        this.recordCount = recordCount;
+        this.lastDate = lastDate;
+        this.lastValue = lastValue;
+    }
+
+    @JsonIgnore
+    public boolean isChunked() {
+        return storageMode == StorageMode.CHUNKED;
+    }
+}
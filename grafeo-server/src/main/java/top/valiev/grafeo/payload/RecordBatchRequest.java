@@ -0,0 +1,18 @@
+package top.valiev.grafeo.payload;
+
+import lombok.Data;
+import top.valiev.grafeo.util.AppConstants;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+@Data
+public class RecordBatchRequest {
+
+    @NotEmpty
+    @Size(max = AppConstants.MAX_BATCH_RECORDS)
+    @Valid
+    private List<RecordValueRequest> records;
+}
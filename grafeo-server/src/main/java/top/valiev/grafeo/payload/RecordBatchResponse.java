@@ -0,0 +1,12 @@
+package top.valiev.grafeo.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class RecordBatchResponse {
+    private Long indicatorId;
+    private int received;
+    private int changed;
+}
@@ -0,0 +1,15 @@
+package top.valiev.grafeo.payload;
+
+import lombok.Data;
+
+/**
+ * Answer to a record write sent with {@code Prefer: return=minimal}.
+ */
+@Data
+public class RecordMutationResponse {
+    private Long indicatorId;
+    private long version;
+    private boolean changed;
+    private RecordResponse record;
+    private RecordSummary summary;
+}
@@ -1,10 +1,14 @@
 package top.valiev.grafeo.payload;
 
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.time.LocalDate;
 
 @Data
+@NoArgsConstructor
+@AllArgsConstructor
 public class RecordResponse implements Comparable<RecordResponse> {
     private long id;
     private Double value;
@@ -0,0 +1,20 @@
+package top.valiev.grafeo.payload;
+
+import lombok.Data;
+
+/**
+ * Statistics of the records in a date range, {@code stddev} is the sample standard deviation.
+ */
+@Data
+public class RecordStatsResponse {
+    private Long indicatorId;
+    private long count;
+    private Double min;
+    private Double max;
+    private Double mean;
+    private Double stddev;
+    private RecordResponse first;
+    private RecordResponse last;
+    private Double change;
+    private Double changePercent;
+}
@@ -0,0 +1,23 @@
+package top.valiev.grafeo.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecordSummary {
+    private long count;
+    private Double min;
+    private Double max;
+    private LocalDate firstDate;
+    private LocalDate lastDate;
+    private Double lastValue;
+
+    public RecordSummary(long count, Double min, Double max, LocalDate firstDate, LocalDate lastDate) {
+        this(count, min, max, firstDate, lastDate, null);
+    }
+}
@@ -0,0 +1,16 @@
+package top.valiev.grafeo.payload;
+
+import lombok.Data;
+
+import javax.validation.constraints.NotNull;
+import java.time.LocalDate;
+
+@Data
+public class RecordValueRequest {
+
+    @NotNull
+    private Double value;
+
+    @NotNull
+    private LocalDate date;
+}
@@ -0,0 +1,20 @@
+package top.valiev.grafeo.payload;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Indicators aligned on a calendar grid, {@code values[i]} belongs to {@code indicatorIds[i]}
+ * and is null in empty buckets that were not filled.
+ */
+@Data
+public class ResampleResponse {
+    private String step;
+    private String fill;
+    private String agg;
+    private List<Long> indicatorIds;
+    private List<LocalDate> dates;
+    private Double[][] values;
+}
@@ -0,0 +1,18 @@
+package top.valiev.grafeo.payload;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+public class RollupResponse {
+    private LocalDate bucketStart;
+    private int count;
+    private double min;
+    private double max;
+    private double sum;
+    private LocalDate firstDate;
+    private double first;
+    private LocalDate lastDate;
+    private double last;
+}
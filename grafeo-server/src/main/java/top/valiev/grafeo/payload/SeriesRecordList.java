@@ -0,0 +1,60 @@
+package top.valiev.grafeo.payload;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import top.valiev.grafeo.model.series.Series;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Read-only list of records backed by a sorted series, the JSON is written
+ * straight from the arrays without creating a {@link RecordResponse} per point.
+ */
+@JsonSerialize(using = SeriesRecordList.Serializer.class)
+public class SeriesRecordList extends AbstractList<RecordResponse> implements RandomAccess {
+
+    private final Series series;
+    private final long[] ids;
+
+    /**
+     * @param ids record ids aligned with the series, or null to use epoch days as ids
+     */
+    public SeriesRecordList(Series series, long[] ids) {
+        this.series = series;
+        this.ids = ids;
+    }
+
+    @Override
+    public RecordResponse get(int index) {
+        return new RecordResponse(idAt(index), series.valueAt(index), series.dateAt(index));
+    }
+
+    @Override
+    public int size() {
+        return series.size();
+    }
+
+    private long idAt(int index) {
+        return ids == null ? series.dayAt(index) : ids[index];
+    }
+
+    public static class Serializer extends JsonSerializer<SeriesRecordList> {
+
+        @Override
+        public void serialize(SeriesRecordList list, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeStartArray();
+            for (int i = 0; i < list.size(); i++) {
+                gen.writeStartObject();
+                gen.writeNumberField("id", list.idAt(i));
+                gen.writeNumberField("value", list.series.valueAt(i));
+                gen.writeStringField("date", list.series.dateAt(i).toString());
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package top.valiev.grafeo.payload;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+public class SeriesResponse {
+    private Long indicatorId;
+    private int totalPoints;
+    private List<LocalDate> dates;
+    private double[] values;
+}
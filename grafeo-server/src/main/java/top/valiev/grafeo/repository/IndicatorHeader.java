@@ -0,0 +1,26 @@
+package top.valiev.grafeo.repository;
+
+import top.valiev.grafeo.model.StorageMode;
+
+import java.time.Instant;
+
+public interface IndicatorHeader {
+
+    Long getId();
+
+    Long getCreatedBy();
+
+    String getName();
+
+    String getUnit();
+
+    StorageMode getStorageMode();
+
+    Long getChangeVersion();
+
+    Instant getUpdatedAt();
+
+    default boolean isChunked() {
+        return getStorageMode() == StorageMode.CHUNKED;
+    }
+}
@@ -0,0 +1,10 @@
+package top.valiev.grafeo.repository;
+
+import java.time.Instant;
+
+public interface IndicatorListVersion {
+
+    long getCount();
+
+    Instant getLastUpdatedAt();
+}
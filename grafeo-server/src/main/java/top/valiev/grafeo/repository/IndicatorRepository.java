@@ -5,9 +5,14 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import top.valiev.grafeo.model.Indicator;
+import top.valiev.grafeo.payload.IndicatorSummary;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,17 +20,72 @@ import java.util.Optional;
 public interface IndicatorRepository extends JpaRepository<Indicator, Long> {
     Optional<Indicator> findById(Long indicatorId);
 
+    Optional<IndicatorHeader> findHeaderById(Long indicatorId);
+
     Page<Indicator> findByCreatedBy(Long userId, Pageable pageable);
 
     Page<Indicator> findByCreatedByOrderByUpdatedAtDesc(Long userId, Pageable pageable);
 
     Page<Indicator> findByCreatedByOrderByName(Long userId, Pageable pageable);
 
+    List<Indicator> findByCreatedByOrderByUpdatedAtDescIdDesc(Long userId, Pageable pageable);
+
+    @Query("select i from Indicator i where i.createdBy = :userId " +
+            "and (i.updatedAt < :updatedAt or (i.updatedAt = :updatedAt and i.id < :id)) " +
+            "order by i.updatedAt desc, i.id desc")
+    List<Indicator> findByCreatedByUpdatedBefore(@Param("userId") Long userId,
+                                                 @Param("updatedAt") Instant updatedAt,
+                                                 @Param("id") long id,
+                                                 Pageable pageable);
+
+    List<Indicator> findByCreatedByOrderByNameAscIdAsc(Long userId, Pageable pageable);
+
+    @Query("select i from Indicator i where i.createdBy = :userId " +
+            "and (i.name > :name or (i.name = :name and i.id > :id)) " +
+            "order by i.name, i.id")
+    List<Indicator> findByCreatedByNameAfter(@Param("userId") Long userId,
+                                             @Param("name") String name,
+                                             @Param("id") long id,
+                                             Pageable pageable);
+
     List<Indicator> findByCreatedBy(Long userId);
 
+    List<IndicatorHeader> findHeadersByCreatedByOrderByIdAsc(Long userId);
+
     long countByCreatedBy(Long userId);
 
+    @Query(value = "select new top.valiev.grafeo.payload.IndicatorSummary(i.id, i.name, i.unit, i.storageMode, i.createdAt, i.updatedAt, " +
+            "(select count(r) from Record r where r.indicator = i), " +
+            "(select max(r.date) from Record r where r.indicator = i), " +
+            "(select r.value from Record r where r.indicator = i " +
+            "and r.date = (select max(l.date) from Record l where l.indicator = i))) " +
+            "from Indicator i where i.createdBy = :userId order by i.createdAt desc, i.id desc",
+            countQuery = "select count(i) from Indicator i where i.createdBy = :userId")
+    Page<IndicatorSummary> findSummariesByCreatedBy(@Param("userId") Long userId, Pageable pageable);
+
+    @Query("select count(i) as count, max(i.updatedAt) as lastUpdatedAt from Indicator i where i.createdBy = :userId")
+    IndicatorListVersion findListVersionByCreatedBy(@Param("userId") Long userId);
+
     List<Indicator> findByIdIn(List<Long> indicatorIds);
 
+    List<IndicatorHeader> findHeadersByIdIn(List<Long> indicatorIds);
+
     List<Indicator> findByIdIn(List<Long> indicatorIds, Sort sort);
+
+    /**
+     * Increments the change version, the row stays locked until the transaction ends.
+     */
+    @Modifying
+    @Query("update Indicator i set i.updatedAt = :now, i.updatedBy = :userId, " +
+            "i.changeVersion = coalesce(i.changeVersion, 0) + 1 where i.id = :indicatorId")
+    int touch(@Param("indicatorId") Long indicatorId, @Param("userId") Long userId, @Param("now") Instant now);
+
+    @Modifying
+    @Query("update Indicator i set i.name = :name, i.unit = :unit, i.updatedAt = :now, i.updatedBy = :userId " +
+            "where i.id = :indicatorId")
+    int rename(@Param("indicatorId") Long indicatorId, @Param("name") String name, @Param("unit") String unit,
+               @Param("userId") Long userId, @Param("now") Instant now);
+
+    @Query("select coalesce(i.changeVersion, 0) from Indicator i where i.id = :indicatorId")
+    long findChangeVersionById(@Param("indicatorId") Long indicatorId);
 }
@@ -0,0 +1,12 @@
+package top.valiev.grafeo.repository;
+
+public interface RecordChunkCount {
+
+    Long getId();
+
+    Long getIndicatorId();
+
+    int getBucket();
+
+    int getPointCount();
+}
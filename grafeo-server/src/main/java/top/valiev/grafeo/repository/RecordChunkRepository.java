@@ -0,0 +1,51 @@
+package top.valiev.grafeo.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import top.valiev.grafeo.model.RecordChunk;
+
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+@Repository
+public interface RecordChunkRepository extends JpaRepository<RecordChunk, Long> {
+
+    @Query("select c from RecordChunk c where c.indicator.id = :indicatorId " +
+            "and c.lastDay >= :fromDay and c.firstDay <= :toDay and c.pointCount > 0 order by c.bucket")
+    List<RecordChunk> findOverlapping(@Param("indicatorId") Long indicatorId,
+                                      @Param("fromDay") int fromDay,
+                                      @Param("toDay") int toDay);
+
+    /**
+     * Streams the non-empty chunks ordered by bucket, the stream must be closed within the transaction.
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "16"))
+    @Query("select c from RecordChunk c where c.indicator.id = :indicatorId and c.pointCount > 0 order by c.bucket")
+    Stream<RecordChunk> streamByIndicatorId(@Param("indicatorId") Long indicatorId);
+
+    @Query("select c from RecordChunk c where c.indicator.id = :indicatorId " +
+            "and c.changeVersion > :version order by c.bucket")
+    List<RecordChunk> findChangedSince(@Param("indicatorId") Long indicatorId,
+                                       @Param("version") long version);
+
+    /**
+     * Lists the point counts of the non-empty chunks without their data.
+     */
+    @Query("select c.id as id, c.indicator.id as indicatorId, c.bucket as bucket, c.pointCount as pointCount " +
+            "from RecordChunk c where c.indicator.id in :indicatorIds and c.pointCount > 0 " +
+            "order by c.indicator.id, c.bucket")
+    List<RecordChunkCount> findCountsByIndicatorIdIn(@Param("indicatorIds") Collection<Long> indicatorIds);
+
+    List<RecordChunk> findByIdInOrderByBucket(Collection<Long> ids);
+
+    Optional<RecordChunk> findByIndicatorIdAndBucket(Long indicatorId, int bucket);
+
+    @Query("select coalesce(sum(c.pointCount), 0) from RecordChunk c where c.createdBy = :userId")
+    long sumPointCountByCreatedBy(@Param("userId") Long userId);
+}
@@ -3,13 +3,92 @@ package top.valiev.grafeo.repository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import top.valiev.grafeo.model.Record;
+import top.valiev.grafeo.payload.RecordResponse;
+import top.valiev.grafeo.payload.RecordSummary;
 
+import javax.persistence.QueryHint;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface RecordRepository extends JpaRepository<Record, Long> {
+public interface RecordRepository extends JpaRepository<Record, Long>, RecordRepositoryCustom {
+
+    String STREAM_FETCH_SIZE = "1000";
+
+    String RANGE_QUERY = "select new top.valiev.grafeo.payload.RecordResponse(r.id, r.value, r.date) from Record r " +
+            "where r.indicator.id = :indicatorId and r.date between :from and :to";
+
+    @Query(RANGE_QUERY + " order by r.date")
+    List<RecordResponse> findRange(@Param("indicatorId") Long indicatorId,
+                                   @Param("from") LocalDate from,
+                                   @Param("to") LocalDate to);
+
+    @Query(RANGE_QUERY)
+    List<RecordResponse> findRange(@Param("indicatorId") Long indicatorId,
+                                   @Param("from") LocalDate from,
+                                   @Param("to") LocalDate to,
+                                   Pageable pageable);
+
+    /**
+     * Streams all records ordered by date from a database cursor, the stream must be closed within the transaction.
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query("select new top.valiev.grafeo.payload.RecordResponse(r.id, r.value, r.date) from Record r " +
+            "where r.indicator.id = :indicatorId order by r.date")
+    Stream<RecordResponse> streamByIndicatorId(@Param("indicatorId") Long indicatorId);
+
+    @Query("select new top.valiev.grafeo.payload.RecordResponse(r.id, r.value, r.date) from Record r " +
+            "where r.indicator.id = :indicatorId and r.date = :date")
+    Optional<RecordResponse> findByIndicatorIdAndDate(@Param("indicatorId") Long indicatorId,
+                                                      @Param("date") LocalDate date);
+
+    @Query("select new top.valiev.grafeo.payload.RecordResponse(r.id, r.value, r.date) from Record r " +
+            "where r.indicator.id = :indicatorId and r.changeVersion > :version order by r.date")
+    List<RecordResponse> findChangedSince(@Param("indicatorId") Long indicatorId,
+                                          @Param("version") long version);
+
+    @Query("select new top.valiev.grafeo.payload.RecordSummary(count(r), min(r.value), max(r.value), min(r.date), max(r.date)) " +
+            "from Record r where r.indicator.id = :indicatorId")
+    RecordSummary summarize(@Param("indicatorId") Long indicatorId);
+
+    /**
+     * @return a single row of (count, min, max, avg, stddev_samp, first date, last date) of the records in the range
+     */
+    @Query(value = "select count(r.value), min(r.value), max(r.value), avg(r.value), stddev_samp(r.value), min(r.date), max(r.date) " +
+            "from records r where r.indicator_id = :indicatorId and r.date between :from and :to", nativeQuery = true)
+    List<Object[]> aggregateRange(@Param("indicatorId") Long indicatorId,
+                                  @Param("from") LocalDate from,
+                                  @Param("to") LocalDate to);
+
+    /**
+     * @return rows of (indicator_id, date, value) with the latest points of every indicator, ordered by indicator and date
+     */
+    @Query(value = "select t.indicator_id, t.date, t.value from (" +
+            "select r.indicator_id, r.date, r.value, " +
+            "row_number() over (partition by r.indicator_id order by r.date desc) as position " +
+            "from records r where r.indicator_id in (:indicatorIds)) t " +
+            "where t.position <= :points order by t.indicator_id, t.date", nativeQuery = true)
+    List<Object[]> findLatestByIndicatorIdIn(@Param("indicatorIds") Collection<Long> indicatorIds,
+                                             @Param("points") int points);
+
+    @Modifying
+    @Query("delete from Record r where r.indicator.id = :indicatorId and r.date = :date")
+    int deleteByIndicatorIdAndDate(@Param("indicatorId") Long indicatorId,
+                                   @Param("date") LocalDate date);
+
+    @Modifying
+    @Query("delete from Record r where r.indicator.id = :indicatorId and r.date in :dates")
+    int deleteByIndicatorIdAndDateIn(@Param("indicatorId") Long indicatorId,
+                                     @Param("dates") Collection<LocalDate> dates);
 
     Page<Record> findByCreatedBy(Long userId, Pageable pageable);
 
@@ -0,0 +1,23 @@
+package top.valiev.grafeo.repository;
+
+import top.valiev.grafeo.model.series.Series;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+public interface RecordRepositoryCustom {
+
+    /**
+     * Inserts the record or updates the value stored for its date in one statement.
+     *
+     * @return 0 if the same value was already stored
+     */
+    int upsert(Long indicatorId, LocalDate date, double value, long version, Long userId, Instant now);
+
+    /**
+     * Upserts every point of the series with JDBC batches of the single record statement.
+     *
+     * @return number of inserted or changed records
+     */
+    int upsertAll(Long indicatorId, Series series, long version, Long userId, Instant now);
+}
@@ -0,0 +1,104 @@
+package top.valiev.grafeo.repository;
+
+import org.hibernate.Session;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.PostgreSQL81Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import top.valiev.grafeo.model.series.Series;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+
+public class RecordRepositoryImpl implements RecordRepositoryCustom {
+
+    // both statements take (indicator_id, date, value, change_version, created_at, updated_at, created_by, updated_by)
+    private static final String POSTGRES_UPSERT = "insert into records " +
+            "(indicator_id, date, value, change_version, created_at, updated_at, created_by, updated_by) " +
+            "values (?, ?, ?, ?, ?, ?, ?, ?) " +
+            "on conflict (indicator_id, date) do update " +
+            "set value = excluded.value, change_version = excluded.change_version, " +
+            "updated_at = excluded.updated_at, updated_by = excluded.updated_by " +
+            "where records.value <> excluded.value";
+
+    private static final String MERGE_UPSERT = "merge into records r " +
+            "using (select cast(? as bigint) as indicator_id, cast(? as date) as record_date, cast(? as double precision) as record_value, " +
+            "cast(? as bigint) as change_version, cast(? as timestamp) as created_at, cast(? as timestamp) as updated_at, " +
+            "cast(? as bigint) as created_by, cast(? as bigint) as updated_by) s " +
+            "on r.indicator_id = s.indicator_id and r.date = s.record_date " +
+            "when matched and r.value <> s.record_value then " +
+            "update set value = s.record_value, change_version = s.change_version, updated_at = s.updated_at, updated_by = s.updated_by " +
+            "when not matched then insert (indicator_id, date, value, change_version, created_at, updated_at, created_by, updated_by) " +
+            "values (s.indicator_id, s.record_date, s.record_value, s.change_version, s.created_at, s.updated_at, s.created_by, s.updated_by)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
+    private String upsertQuery;
+
+    @Override
+    public int upsert(Long indicatorId, LocalDate date, double value, long version, Long userId, Instant now) {
+        Series series = new Series(1);
+        series.append((int) date.toEpochDay(), value);
+        return upsertAll(indicatorId, series, version, userId, now);
+    }
+
+    @Override
+    public int upsertAll(Long indicatorId, Series series, long version, Long userId, Instant now) {
+        String query = getUpsertQuery();
+        Timestamp timestamp = Timestamp.from(now);
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            int changed = 0;
+            try (PreparedStatement statement = connection.prepareStatement(query)) {
+                for (int i = 0; i < series.size(); i++) {
+                    statement.setLong(1, indicatorId);
+                    statement.setDate(2, Date.valueOf(series.dateAt(i)));
+                    statement.setDouble(3, series.valueAt(i));
+                    statement.setLong(4, version);
+                    statement.setTimestamp(5, timestamp);
+                    statement.setTimestamp(6, timestamp);
+                    statement.setLong(7, userId);
+                    statement.setLong(8, userId);
+                    if (series.size() == 1) {
+                        return statement.executeUpdate();
+                    }
+                    statement.addBatch();
+                    if ((i + 1) % batchSize == 0 || i == series.size() - 1) {
+                        changed += countChanged(statement.executeBatch());
+                    }
+                }
+            }
+            return changed;
+        });
+    }
+
+    private static int countChanged(int[] updateCounts) {
+        int changed = 0;
+        for (int updateCount : updateCounts) {
+            if (updateCount > 0 || updateCount == Statement.SUCCESS_NO_INFO) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    private String getUpsertQuery() {
+        if (upsertQuery == null) {
+            Dialect dialect = entityManager.getEntityManagerFactory()
+                    .unwrap(SessionFactoryImplementor.class)
+                    .getJdbcServices()
+                    .getDialect();
+            upsertQuery = dialect instanceof PostgreSQL81Dialect ? POSTGRES_UPSERT : MERGE_UPSERT;
+        }
+        return upsertQuery;
+    }
+}
@@ -0,0 +1,26 @@
+package top.valiev.grafeo.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import top.valiev.grafeo.model.RecordRollup;
+import top.valiev.grafeo.model.RollupBucket;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface RecordRollupRepository extends JpaRepository<RecordRollup, Long> {
+
+    @Query("select r from RecordRollup r where r.indicator.id = :indicatorId and r.bucket = :bucket " +
+            "and r.pointCount > 0 and r.bucketStart between :from and :to order by r.bucketStart")
+    List<RecordRollup> findRange(@Param("indicatorId") Long indicatorId,
+                                 @Param("bucket") RollupBucket bucket,
+                                 @Param("from") LocalDate from,
+                                 @Param("to") LocalDate to);
+
+    boolean existsByIndicatorId(Long indicatorId);
+
+    List<RecordRollup> findByIndicatorIdAndBucketStartBetween(Long indicatorId, LocalDate from, LocalDate to);
+}
@@ -0,0 +1,19 @@
+package top.valiev.grafeo.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import top.valiev.grafeo.model.RecordTombstone;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface RecordTombstoneRepository extends JpaRepository<RecordTombstone, Long> {
+
+    @Query("select distinct t.date from RecordTombstone t where t.indicator.id = :indicatorId " +
+            "and t.changeVersion > :version order by t.date")
+    List<LocalDate> findDatesDeletedSince(@Param("indicatorId") Long indicatorId,
+                                          @Param("version") long version);
+}
@@ -0,0 +1,128 @@
+package top.valiev.grafeo.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.Value;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import top.valiev.grafeo.exeption.BadRequestException;
+import top.valiev.grafeo.exeption.ResourceNotFoundException;
+import top.valiev.grafeo.model.series.Series;
+import top.valiev.grafeo.payload.CorrelationResponse;
+import top.valiev.grafeo.repository.IndicatorHeader;
+import top.valiev.grafeo.repository.IndicatorRepository;
+import top.valiev.grafeo.service.series.SeriesCorrelation;
+import top.valiev.grafeo.util.AppConstants;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+public class CorrelationService {
+
+    /**
+     * Keyed by the change versions of the participating indicators, so a change to any
+     * of them misses the cache and the stale matrix ages out.
+     */
+    private final Cache<CorrelationKey, CorrelationResponse> correlations = CacheBuilder.newBuilder()
+            .maximumSize(1000)
+            .expireAfterAccess(1, TimeUnit.HOURS)
+            .build();
+
+    @Autowired
+    private IndicatorRepository indicatorRepository;
+
+    @Autowired
+    private SeriesService seriesService;
+
+    /**
+     * @param indicatorIds indicators of the user to correlate, all of them if null or empty
+     */
+    public CorrelationResponse getCorrelations(Long userId, List<Long> indicatorIds, String methodName, LocalDate from, LocalDate to) {
+        SeriesCorrelation.Method method = SeriesService.parseEnum(SeriesCorrelation.Method.class, "Method", methodName);
+        SeriesService.validateRange(from, to);
+        List<IndicatorHeader> indicators = selectIndicators(userId, indicatorIds);
+
+        List<IndicatorVersion> versions = new ArrayList<>(indicators.size());
+        for (IndicatorHeader indicator : indicators) {
+            versions.add(new IndicatorVersion(indicator.getId(), indicator.getChangeVersion(), indicator.getUpdatedAt()));
+        }
+        CorrelationKey key = new CorrelationKey(userId, method, from, to, versions);
+
+        CorrelationResponse cached = correlations.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        CorrelationResponse correlationResponse = computeCorrelations(indicators, method, from, to);
+        correlations.put(key, correlationResponse);
+        return correlationResponse;
+    }
+
+    private CorrelationResponse computeCorrelations(List<IndicatorHeader> indicators, SeriesCorrelation.Method method,
+                                                    LocalDate from, LocalDate to) {
+        List<Series> series = new ArrayList<>(indicators.size());
+        for (IndicatorHeader indicator : indicators) {
+            series.add(seriesService.getSeries(indicator, from, to));
+        }
+        double[][] matrix = SeriesCorrelation.matrix(series, method);
+
+        Double[][] values = new Double[matrix.length][];
+        for (int i = 0; i < matrix.length; i++) {
+            values[i] = new Double[matrix.length];
+            for (int j = 0; j < matrix.length; j++) {
+                values[i][j] = Double.isNaN(matrix[i][j]) ? null : matrix[i][j];
+            }
+        }
+
+        CorrelationResponse correlationResponse = new CorrelationResponse();
+        correlationResponse.setMethod(method.name().toLowerCase(Locale.ROOT));
+        correlationResponse.setIndicatorIds(indicators.stream().map(IndicatorHeader::getId).collect(Collectors.toList()));
+        correlationResponse.setNames(indicators.stream().map(IndicatorHeader::getName).collect(Collectors.toList()));
+        correlationResponse.setValues(values);
+        return correlationResponse;
+    }
+
+    private List<IndicatorHeader> selectIndicators(Long userId, List<Long> indicatorIds) {
+        List<IndicatorHeader> indicators = indicatorRepository.findHeadersByCreatedByOrderByIdAsc(userId);
+        if (indicatorIds != null && !indicatorIds.isEmpty()) {
+            Map<Long, IndicatorHeader> owned = indicators.stream()
+                    .collect(Collectors.toMap(IndicatorHeader::getId, Function.identity()));
+            indicators = new ArrayList<>(indicatorIds.size());
+            for (Long indicatorId : indicatorIds) {
+                IndicatorHeader indicator = owned.get(indicatorId);
+                if (indicator == null) {
+                    throw new ResourceNotFoundException("Indicator", "id", indicatorId);
+                }
+                indicators.add(indicator);
+            }
+        }
+
+        if (indicators.size() > AppConstants.MAX_CORRELATION_INDICATORS) {
+            throw new BadRequestException("Indicators number must not be greater than " + AppConstants.MAX_CORRELATION_INDICATORS);
+        }
+        return indicators;
+    }
+
+    @Value
+    private static class CorrelationKey {
+        Long userId;
+        SeriesCorrelation.Method method;
+        LocalDate from;
+        LocalDate to;
+        List<IndicatorVersion> indicators;
+    }
+
+    @Value
+    private static class IndicatorVersion {
+        Long id;
+        Long changeVersion;
+        Instant updatedAt;
+    }
+}
@@ -24,6 +24,8 @@ import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import top.valiev.grafeo.exeption.AppException;
 import top.valiev.grafeo.model.*;
+import top.valiev.grafeo.model.series.SeriesBuilder;
+import top.valiev.grafeo.repository.IndicatorHeader;
 import top.valiev.grafeo.repository.IndicatorRepository;
 import top.valiev.grafeo.repository.RoleRepository;
 import top.valiev.grafeo.repository.UserRepository;
@@ -81,6 +83,8 @@ public class DemoService {
 
     private final PasswordEncoder passwordEncoder;
 
+    private final RecordService recordService;
+
     private OkHttpClient okHttpClient = new OkHttpClient();
 
     private RandomStringGenerator generator = new RandomStringGenerator.Builder()
@@ -92,12 +96,16 @@ public class DemoService {
     @Value("${alphavantage.api.key}")
     private String apiKey;
 
+    @Value("${app.records.storage:ROWS}")
+    private StorageMode storageMode;
+
     @Autowired
-    public DemoService(UserRepository userRepository, IndicatorRepository indicatorRepository, RoleRepository roleRepository, PasswordEncoder passwordEncoder) {
+    public DemoService(UserRepository userRepository, IndicatorRepository indicatorRepository, RoleRepository roleRepository, PasswordEncoder passwordEncoder, RecordService recordService) {
         this.userRepository = userRepository;
         this.indicatorRepository = indicatorRepository;
         this.roleRepository = roleRepository;
         this.passwordEncoder = passwordEncoder;
+        this.recordService = recordService;
     }
 
     public User generateDemoUser() {
@@ -109,12 +117,7 @@ public class DemoService {
 
         User savedUser = createDemoUser(DEMO_USER, email, email, generatedPassword);
 
-        List<Indicator> demoIndicators = getDemoIndicators(savedUser);
-        for (Indicator demoIndicator : demoIndicators) {
-            demoIndicator.setCreatedBy(savedUser.getId());
-            demoIndicator.setUpdatedBy(savedUser.getId());
-            indicatorRepository.save(demoIndicator);
-        }
+        fillDemoIndicators(savedUser);
 
         stopwatch.stop();
         long elapsed = stopwatch.elapsed(TimeUnit.MILLISECONDS);
@@ -155,15 +158,14 @@ public class DemoService {
         return userRepository.save(user);
     }
 
-    private List<Indicator> getDemoIndicators(User demoUser) {
+    private void fillDemoIndicators(User demoUser) {
 
         ExecutorService executorService = Executors.newFixedThreadPool(4);
-        List<Indicator> demoIndicators = new ArrayList<>();
-        executorService.execute(() -> demoIndicators.add(fillCryptoDemoIndicator(createDemoIndicator(demoUser, "Bitcoin price", "USD"), "BTC")));
-        executorService.execute(() -> demoIndicators.add(fillStockDemoIndicator(createDemoIndicator(demoUser, "Apple stocks", "USD"), "AAPL")));
-        executorService.execute(() -> demoIndicators.add(fillStockDemoIndicator(createDemoIndicator(demoUser, "Google stocks", "USD"), "GOOG")));
-        executorService.execute(() -> demoIndicators.add(fillStockDemoIndicator(createDemoIndicator(demoUser, "Facebook stocks", "USD"), "FB")));
-        executorService.execute(() -> demoIndicators.add(fillStockDemoIndicator(createDemoIndicator(demoUser, "Amazon stocks", "USD"), "AMZN")));
+        executorService.execute(() -> fillCryptoDemoIndicator(createDemoIndicator(demoUser, "Bitcoin price", "USD"), "BTC"));
+        executorService.execute(() -> fillStockDemoIndicator(createDemoIndicator(demoUser, "Apple stocks", "USD"), "AAPL"));
+        executorService.execute(() -> fillStockDemoIndicator(createDemoIndicator(demoUser, "Google stocks", "USD"), "GOOG"));
+        executorService.execute(() -> fillStockDemoIndicator(createDemoIndicator(demoUser, "Facebook stocks", "USD"), "FB"));
+        executorService.execute(() -> fillStockDemoIndicator(createDemoIndicator(demoUser, "Amazon stocks", "USD"), "AMZN"));
 
         executorService.shutdown();
         try {
@@ -172,7 +174,6 @@ public class DemoService {
             LOGGER.error("Error while awaiting executor finish:", e);
             Thread.currentThread().interrupt();
         }
-        return demoIndicators;
     }
 
     @Transactional(propagation = Propagation.REQUIRES_NEW)
@@ -180,29 +181,37 @@ public class DemoService {
         Indicator indicator = new Indicator();
         indicator.setName(name);
         indicator.setUnit(unit);
+        indicator.setStorageMode(storageMode);
         indicator.setCreatedBy(demoUser.getId());
         indicator.setUpdatedBy(demoUser.getId());
         return indicatorRepository.save(indicator);
     }
 
-    private Indicator fillCryptoDemoIndicator(Indicator cryptoIndicator, String cryptoName) {
+    private void fillCryptoDemoIndicator(Indicator cryptoIndicator, String cryptoName) {
         try {
-            cryptos.get(cryptoName).forEach((date, value) -> cryptoIndicator.addRecord(new Record(value, date)));
+            fillDemoIndicator(cryptoIndicator, cryptos.get(cryptoName));
         } catch (ExecutionException e) {
             LOGGER.error("Error while filling crypto demo indicator:", e);
         }
-
-        return indicatorRepository.save(cryptoIndicator);
     }
 
-    private Indicator fillStockDemoIndicator(Indicator stockIndicator, String stockName) {
+    private void fillStockDemoIndicator(Indicator stockIndicator, String stockName) {
         try {
-            stocks.get(stockName).forEach((date, value) -> stockIndicator.addRecord(new Record(value, date)));
+            fillDemoIndicator(stockIndicator, stocks.get(stockName));
         } catch (ExecutionException e) {
             LOGGER.error("Error while filling stock demo indicator:", e);
         }
+    }
 
-        return indicatorRepository.save(stockIndicator);
+    /**
+     * Writes the values in one batched upsert, the same path as the record batch API.
+     */
+    private void fillDemoIndicator(Indicator indicator, Map<LocalDate, Double> values) {
+        SeriesBuilder points = new SeriesBuilder();
+        values.forEach((date, value) -> points.add((int) date.toEpochDay(), value));
+        IndicatorHeader header = indicatorRepository.findHeaderById(indicator.getId())
+                .orElseThrow(() -> new AppException("Demo indicator not found."));
+        recordService.upsertRecords(header, points.build(), indicator.getCreatedBy());
     }
 
     private Map<LocalDate, Double> loadCryptoData(String cryptoName) {
@@ -2,20 +2,54 @@ package top.valiev.grafeo.service;
 
 import com.google.common.base.Stopwatch;
 import com.google.gson.*;
-import org.apache.commons.io.IOUtils;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
-import top.valiev.grafeo.model.Indicator;
+import top.valiev.grafeo.exeption.BadRequestException;
+import top.valiev.grafeo.model.RecordChunk;
+import top.valiev.grafeo.model.series.PointConsumer;
+import top.valiev.grafeo.model.series.Series;
+import top.valiev.grafeo.payload.RecordResponse;
+import top.valiev.grafeo.repository.IndicatorHeader;
+import top.valiev.grafeo.repository.IndicatorRepository;
+import top.valiev.grafeo.repository.RecordChunkRepository;
+import top.valiev.grafeo.repository.RecordRepository;
+import top.valiev.grafeo.service.series.CsvSeriesReader;
+import top.valiev.grafeo.service.series.SeriesFileFormat;
+import top.valiev.grafeo.util.AppConstants;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.util.Optional;
+import java.time.format.DateTimeParseException;
+import java.util.Iterator;
+import java.util.Objects;
 import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 @Service
 public class FileService {
@@ -24,30 +58,254 @@ public class FileService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(FileService.class);
 
-    private Gson gson = new GsonBuilder()
-            .excludeFieldsWithoutExposeAnnotation()
-            .setPrettyPrinting()
-            .registerTypeAdapter(LocalDate.class, new LocalDateAdapter())
-            .create();
+    @Autowired
+    private RecordRepository recordRepository;
 
-    public InputStream getIndicatorJson(Indicator indicator) {
-        String jsonIndicator = gson.toJson(indicator);
-        return IOUtils.toInputStream(jsonIndicator);
+    @Autowired
+    private RecordChunkRepository recordChunkRepository;
+
+    @Autowired
+    private IndicatorRepository indicatorRepository;
+
+    @Autowired
+    private RecordService recordService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Writes the indicator in the upload format straight from a database cursor,
+     * only one chunk or one fetch of records is held in memory at a time.
+     */
+    @Transactional(readOnly = true)
+    public void writeIndicatorJson(IndicatorHeader indicator, OutputStream output) throws IOException {
+        JsonWriter writer = new JsonWriter(new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8)));
+        writer.setIndent("  ");
+        writer.setSerializeNulls(false);
+
+        writer.beginObject();
+        writer.name("name").value(indicator.getName());
+        writer.name("unit").value(indicator.getUnit());
+        writer.name("records").beginArray();
+        forEachPoint(indicator, (day, value) -> writeRecord(writer, value, LocalDate.ofEpochDay(day)));
+        writer.endArray();
+        writer.endObject();
+        writer.flush();
     }
 
-    public Optional<Indicator> storeFile(MultipartFile mfile) {
-        Stopwatch stopwatch = Stopwatch.createStarted();
-        Optional<Indicator> indicator = Optional.empty();
+    /**
+     * Writes every indicator of the user as a JSON entry of a ZIP archive. Entries are written
+     * one after another from database cursors, so memory does not grow with the account.
+     */
+    @Transactional(readOnly = true)
+    public void writeUserExport(Long userId, OutputStream output) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(output, StandardCharsets.UTF_8);
+        for (IndicatorHeader indicator : indicatorRepository.findHeadersByCreatedByOrderByIdAsc(userId)) {
+            zip.putNextEntry(new ZipEntry(exportEntryName(indicator)));
+            writeIndicatorJson(indicator, zip);
+            zip.closeEntry();
+            entityManager.clear();
+        }
+        zip.finish();
+    }
+
+    private static String exportEntryName(IndicatorHeader indicator) {
+        String name = indicator.getName() == null ? "" : indicator.getName().replaceAll("[^\\p{L}\\p{N} ._-]", "_").trim();
+        return indicator.getId() + (name.isEmpty() ? "" : "-" + name) + ".json";
+    }
+
+    /**
+     * Writes the indicator in the binary {@link SeriesFileFormat} from a database cursor.
+     */
+    @Transactional(readOnly = true)
+    public void writeIndicatorBinary(IndicatorHeader indicator, OutputStream output) throws IOException {
+        SeriesFileFormat.Writer writer = new SeriesFileFormat.Writer(output, indicator.getName(), indicator.getUnit());
+        forEachPoint(indicator, writer::append);
+        writer.finish();
+    }
+
+    private void forEachPoint(IndicatorHeader indicator, PointConsumer consumer) throws IOException {
+        if (indicator.isChunked()) {
+            try (Stream<RecordChunk> chunks = recordChunkRepository.streamByIndicatorId(indicator.getId())) {
+                for (Iterator<RecordChunk> iterator = chunks.iterator(); iterator.hasNext(); ) {
+                    RecordChunk chunk = iterator.next();
+                    Series series = chunk.decode();
+                    entityManager.detach(chunk);
+                    for (int i = 0; i < series.size(); i++) {
+                        consumer.accept(series.dayAt(i), series.valueAt(i));
+                    }
+                }
+            }
+        } else {
+            try (Stream<RecordResponse> records = recordRepository.streamByIndicatorId(indicator.getId())) {
+                for (Iterator<RecordResponse> iterator = records.iterator(); iterator.hasNext(); ) {
+                    RecordResponse record = iterator.next();
+                    consumer.accept((int) record.getDate().toEpochDay(), record.getValue());
+                }
+            }
+        }
+    }
+
+    private static void writeRecord(JsonWriter writer, double value, LocalDate date) throws IOException {
+        writer.beginObject();
+        writer.name("value").value(value);
+        writer.name("date").value(date.format(ISO_LOCAL_DATE));
+        writer.endObject();
+    }
+
+    /**
+     * Replaces the records of the indicator with the ones of an uploaded file. Records are merged
+     * with the stored ones in batches while the file is read, only changed points are written.
+     *
+     * @param contentType {@link SeriesFileFormat#MEDIA_TYPE} for binary files, CSV is read
+     *                    from a temporary file, JSON otherwise
+     * @param progress    receives the number of records read so far
+     * @return number of inserted, changed and deleted records
+     */
+    @Transactional(rollbackFor = IOException.class)
+    public int importIndicator(IndicatorHeader indicator, MultipartFile file, Long userId, LongConsumer progress) throws IOException {
+        if (!CsvSeriesReader.isCsv(file.getContentType())) {
+            try (InputStream input = file.getInputStream()) {
+                return importIndicator(indicator, input, file.getContentType(), userId, progress);
+            }
+        }
+        Path upload = Files.createTempFile("grafeo-import-", ".csv");
         try {
-            String rawData = IOUtils.toString(mfile.getInputStream());
-            indicator = Optional.ofNullable(gson.fromJson(rawData, Indicator.class));
-        } catch (IOException e) {
-            LOGGER.error("Error during file storing", e);
+            file.transferTo(upload);
+            return importIndicator(indicator, upload, file.getContentType(), userId, progress);
+        } finally {
+            Files.deleteIfExists(upload);
         }
+    }
+
+    /**
+     * Imports an upload stored in a file. CSV files are memory-mapped and parsed in parallel
+     * by {@link CsvSeriesReader}, other formats are read as a stream.
+     */
+    @Transactional(rollbackFor = IOException.class)
+    public int importIndicator(IndicatorHeader indicator, Path upload, String contentType, Long userId, LongConsumer progress) throws IOException {
+        if (!CsvSeriesReader.isCsv(contentType)) {
+            try (InputStream input = Files.newInputStream(upload)) {
+                return importIndicator(indicator, input, contentType, userId, progress);
+            }
+        }
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        try (RecordService.RecordMerge merge = recordService.openMerge(indicator, userId)) {
+            try {
+                CsvSeriesReader.read(upload, merge, progress);
+            } catch (IllegalArgumentException e) {
+                throw new BadRequestException("File is not a valid indicator: " + e.getMessage(), e);
+            }
+            return finishImport(indicator, indicator.getName(), indicator.getUnit(), merge, userId, stopwatch);
+        }
+    }
+
+    /**
+     * A failure after some records were merged rolls the whole import back.
+     */
+    @Transactional(rollbackFor = IOException.class)
+    public int importIndicator(IndicatorHeader indicator, InputStream input, String contentType, Long userId, LongConsumer progress) throws IOException {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        String name = indicator.getName();
+        String unit = indicator.getUnit();
+        boolean hasRecords = false;
+        try (RecordService.RecordMerge merge = recordService.openMerge(indicator, userId)) {
+            try {
+                if (SeriesFileFormat.MEDIA_TYPE.equals(contentType)) {
+                    SeriesFileFormat.Reader reader = new SeriesFileFormat.Reader(input);
+                    name = reader.getName() == null ? name : reader.getName();
+                    unit = reader.getUnit() == null ? unit : reader.getUnit();
+                    reader.readRecords(merge, progress);
+                    hasRecords = true;
+                } else {
+                    JsonReader reader = new JsonReader(new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8)));
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        switch (reader.nextName()) {
+                            case "name":
+                                name = nextString(reader, name);
+                                break;
+                            case "unit":
+                                unit = nextString(reader, unit);
+                                break;
+                            case "records":
+                                readRecords(reader, merge, progress);
+                                hasRecords = true;
+                                break;
+                            default:
+                                reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                }
+            } catch (MalformedJsonException | EOFException | IllegalArgumentException | IllegalStateException | DateTimeParseException e) {
+                throw new BadRequestException("File is not a valid indicator: " + e.getMessage(), e);
+            }
+            return finishImport(indicator, name, unit, hasRecords ? merge : null, userId, stopwatch);
+        }
+    }
+
+    /**
+     * @param merge merge of the read records, null if the file has no records and the stored ones are kept
+     */
+    private int finishImport(IndicatorHeader indicator, String name, String unit, RecordService.RecordMerge merge,
+                             Long userId, Stopwatch stopwatch) {
+        if (!Objects.equals(name, indicator.getName()) || !Objects.equals(unit, indicator.getUnit())) {
+            // a bulk update skips auditing, updatedAt is set here so the ETags change with the name
+            indicatorRepository.rename(indicator.getId(), name, unit, userId, Instant.now());
+        }
+        int changed = merge == null ? 0 : merge.finish();
+
         stopwatch.stop();
-        long elapsed = stopwatch.elapsed(TimeUnit.MILLISECONDS);
-        LOGGER.info("File was parsed; elapsed time: {} ms", elapsed);
-        return indicator;
+        LOGGER.info("File was imported; records: {}, changed: {}, elapsed time: {} ms",
+                merge == null ? 0 : merge.getPoints(), changed, stopwatch.elapsed(TimeUnit.MILLISECONDS));
+        return changed;
+    }
+
+    private void readRecords(JsonReader reader, PointConsumer consumer, LongConsumer progress) throws IOException {
+        long read = 0;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            Double value = null;
+            LocalDate date = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "value":
+                        if (reader.peek() == JsonToken.NULL) {
+                            reader.nextNull();
+                        } else {
+                            value = reader.nextDouble();
+                        }
+                        break;
+                    case "date":
+                        String rawDate = nextString(reader, null);
+                        date = rawDate == null ? null : LocalDate.parse(rawDate, ISO_LOCAL_DATE);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if (value == null || date == null) {
+                throw new BadRequestException("Every record must have a value and a date.");
+            }
+
+            consumer.accept((int) date.toEpochDay(), value);
+            if (++read % AppConstants.IMPORT_BATCH_RECORDS == 0) {
+                progress.accept(read);
+            }
+        }
+        reader.endArray();
+        progress.accept(read);
+    }
+
+    private static String nextString(JsonReader reader, String defaultValue) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return defaultValue;
+        }
+        return reader.nextString();
     }
 
     public static class LocalDateAdapter implements JsonSerializer<LocalDate>, JsonDeserializer<LocalDate> {
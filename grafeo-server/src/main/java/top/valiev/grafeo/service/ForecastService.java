@@ -0,0 +1,88 @@
+package top.valiev.grafeo.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.Value;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import top.valiev.grafeo.exeption.BadRequestException;
+import top.valiev.grafeo.payload.ForecastResponse;
+import top.valiev.grafeo.repository.IndicatorHeader;
+import top.valiev.grafeo.service.series.SeriesForecast;
+import top.valiev.grafeo.util.AppConstants;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+@Service
+public class ForecastService {
+
+    /**
+     * Keyed by the indicator version, a new record makes the next request refit.
+     */
+    private final Cache<ForecastKey, ForecastResponse> forecasts = CacheBuilder.newBuilder()
+            .maximumSize(1000)
+            .expireAfterAccess(1, TimeUnit.HOURS)
+            .build();
+
+    @Autowired
+    private SeriesService seriesService;
+
+    public ForecastResponse getForecast(IndicatorHeader indicator, String modelName, int horizon) {
+        SeriesForecast.Model model = SeriesService.parseEnum(SeriesForecast.Model.class, "Model", modelName);
+        validateHorizon(horizon);
+
+        ForecastKey key = new ForecastKey(indicator.getId(), indicator.getChangeVersion(), indicator.getUpdatedAt(), model, horizon);
+        ForecastResponse cached = forecasts.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        SeriesForecast forecast = SeriesForecast.fit(seriesService.getSeries(indicator, null, null), model, horizon);
+        List<LocalDate> dates = new ArrayList<>(forecast.size());
+        double[] values = new double[forecast.size()];
+        double[] lower = new double[forecast.size()];
+        double[] upper = new double[forecast.size()];
+        for (int i = 0; i < forecast.size(); i++) {
+            dates.add(LocalDate.ofEpochDay(forecast.dayAt(i)));
+            values[i] = forecast.valueAt(i);
+            lower[i] = forecast.lowerAt(i);
+            upper[i] = forecast.upperAt(i);
+        }
+
+        ForecastResponse forecastResponse = new ForecastResponse();
+        forecastResponse.setIndicatorId(indicator.getId());
+        forecastResponse.setModel(model.name().toLowerCase(Locale.ROOT));
+        forecastResponse.setStep(forecast.getStep());
+        forecastResponse.setLevel(SeriesForecast.LEVEL);
+        forecastResponse.setDates(dates);
+        forecastResponse.setValues(values);
+        forecastResponse.setLower(lower);
+        forecastResponse.setUpper(upper);
+        forecasts.put(key, forecastResponse);
+        return forecastResponse;
+    }
+
+    private void validateHorizon(int horizon) {
+        if (horizon < 1) {
+            throw new BadRequestException("Horizon must not be less than 1");
+        }
+
+        if (horizon > AppConstants.MAX_FORECAST_HORIZON) {
+            throw new BadRequestException("Horizon must not be greater than " + AppConstants.MAX_FORECAST_HORIZON);
+        }
+    }
+
+    @Value
+    private static class ForecastKey {
+        Long indicatorId;
+        Long changeVersion;
+        Instant updatedAt;
+        SeriesForecast.Model model;
+        int horizon;
+    }
+}
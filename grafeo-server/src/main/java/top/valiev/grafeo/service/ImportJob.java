@@ -0,0 +1,70 @@
+package top.valiev.grafeo.service;
+
+import lombok.Getter;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Upload processed in the background, updated by the import thread and read by pollers.
+ */
+@Getter
+public class ImportJob {
+
+    public enum Status {
+        QUEUED, RUNNING, DONE, FAILED
+    }
+
+    private final String id;
+    private final Long indicatorId;
+    private final Long userId;
+    private final Instant submittedAt = Instant.now();
+    private volatile Status status = Status.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile long recordsRead;
+    private volatile Integer changed;
+    private volatile String error;
+
+    public ImportJob(String id, Long indicatorId, Long userId) {
+        this.id = id;
+        this.indicatorId = indicatorId;
+        this.userId = userId;
+    }
+
+    public boolean isFinished() {
+        return status == Status.DONE || status == Status.FAILED;
+    }
+
+    /**
+     * @return records read per second while running, null before the job starts
+     */
+    public Double getRecordsPerSecond() {
+        if (startedAt == null) {
+            return null;
+        }
+        Duration elapsed = Duration.between(startedAt, finishedAt == null ? Instant.now() : finishedAt);
+        return recordsRead * 1000.0 / Math.max(1, elapsed.toMillis());
+    }
+
+    void start() {
+        startedAt = Instant.now();
+        status = Status.RUNNING;
+    }
+
+    void progress(long recordsRead) {
+        this.recordsRead = recordsRead;
+    }
+
+    void finish(int changed) {
+        this.changed = changed;
+        finishedAt = Instant.now();
+        status = Status.DONE;
+    }
+
+    void fail(String error) {
+        this.error = error;
+        finishedAt = Instant.now();
+        status = Status.FAILED;
+    }
+}
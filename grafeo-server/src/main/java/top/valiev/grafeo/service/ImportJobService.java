@@ -0,0 +1,90 @@
+package top.valiev.grafeo.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import top.valiev.grafeo.exeption.ResourceNotFoundException;
+import top.valiev.grafeo.exeption.ServiceUnavailableException;
+import top.valiev.grafeo.repository.IndicatorHeader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class ImportJobService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ImportJobService.class);
+
+    private static final Duration FINISHED_JOB_RETENTION = Duration.ofHours(1);
+
+    @Autowired
+    private FileService fileService;
+
+    @Autowired
+    private ThreadPoolTaskExecutor importExecutor;
+
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * Copies the upload aside and queues its import, the request thread returns right away.
+     */
+    public ImportJob submit(IndicatorHeader indicator, MultipartFile file, Long userId) throws IOException {
+        Path upload = Files.createTempFile("grafeo-import-", ".upload");
+        file.transferTo(upload);
+        String contentType = file.getContentType();
+
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), indicator.getId(), userId);
+        jobs.put(job.getId(), job);
+        try {
+            importExecutor.execute(new DelegatingSecurityContextRunnable(() -> run(job, indicator, upload, contentType)));
+        } catch (TaskRejectedException e) {
+            jobs.remove(job.getId());
+            Files.deleteIfExists(upload);
+            throw new ServiceUnavailableException("Too many imports in progress, try again later", e);
+        }
+        return job;
+    }
+
+    public ImportJob getJob(String jobId, Long userId) {
+        ImportJob job = jobs.get(jobId);
+        if (job == null || !job.getUserId().equals(userId)) {
+            throw new ResourceNotFoundException("Import", "id", jobId);
+        }
+        return job;
+    }
+
+    @Scheduled(fixedRate = 60000)
+    public void evictFinishedJobs() {
+        Instant threshold = Instant.now().minus(FINISHED_JOB_RETENTION);
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(threshold));
+    }
+
+    private void run(ImportJob job, IndicatorHeader indicator, Path upload, String contentType) {
+        job.start();
+        try {
+            job.finish(fileService.importIndicator(indicator, upload, contentType, job.getUserId(), job::progress));
+            LOGGER.info("Import {} of indicator {} done; records: {}", job.getId(), job.getIndicatorId(), job.getRecordsRead());
+        } catch (Exception e) {
+            LOGGER.warn("Import {} of indicator {} failed", job.getId(), job.getIndicatorId(), e);
+            job.fail(e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(upload);
+            } catch (IOException e) {
+                LOGGER.warn("Could not delete upload {}", upload, e);
+            }
+        }
+    }
+}
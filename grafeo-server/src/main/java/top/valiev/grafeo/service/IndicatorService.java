@@ -1,6 +1,7 @@
 package top.valiev.grafeo.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -9,28 +10,69 @@ import org.springframework.stereotype.Service;
 import top.valiev.grafeo.exeption.BadRequestException;
 import top.valiev.grafeo.exeption.ResourceNotFoundException;
 import top.valiev.grafeo.model.Indicator;
+import top.valiev.grafeo.model.RecordChunk;
+import top.valiev.grafeo.model.RecordRollup;
+import top.valiev.grafeo.model.RollupBucket;
+import top.valiev.grafeo.model.StorageMode;
 import top.valiev.grafeo.model.User;
+import top.valiev.grafeo.model.series.Series;
+import top.valiev.grafeo.payload.CursorResponse;
 import top.valiev.grafeo.payload.IndicatorRequest;
 import top.valiev.grafeo.payload.IndicatorResponse;
+import top.valiev.grafeo.payload.IndicatorSummary;
 import top.valiev.grafeo.payload.PagedResponse;
+import top.valiev.grafeo.payload.RollupResponse;
+import top.valiev.grafeo.repository.IndicatorHeader;
 import top.valiev.grafeo.repository.IndicatorRepository;
+import top.valiev.grafeo.repository.RecordChunkCount;
+import top.valiev.grafeo.repository.RecordChunkRepository;
+import top.valiev.grafeo.repository.RecordRepository;
+import top.valiev.grafeo.repository.RecordRollupRepository;
 import top.valiev.grafeo.repository.UserRepository;
 import top.valiev.grafeo.util.AppConstants;
+import top.valiev.grafeo.util.Cursors;
 import top.valiev.grafeo.util.ModelMapper;
 
 import javax.validation.Valid;
+import java.sql.Date;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 public class IndicatorService {
 
+    public static final String SORT_BY_UPDATED = "updated";
+    public static final String SORT_BY_NAME = "name";
+
     @Autowired
     private IndicatorRepository indicatorRepository;
 
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private RecordRollupRepository recordRollupRepository;
+
+    @Autowired
+    private RecordRepository recordRepository;
+
+    @Autowired
+    private RecordChunkRepository recordChunkRepository;
+
+    @Autowired
+    private SeriesService seriesService;
+
+    @Value("${app.records.storage:ROWS}")
+    private StorageMode storageMode;
+
     public PagedResponse<IndicatorResponse> getIndicatorsCreatedBy(Long userId, int page, int size) {
         validatePageNumberAndSize(page, size);
 
@@ -53,14 +95,207 @@ public class IndicatorService {
                 indicators.getSize(), indicators.getTotalElements(), indicators.getTotalPages(), indicators.isLast());
     }
 
+    /**
+     * Lists indicators by keyset instead of offset, so deep pages cost the same as the first one.
+     *
+     * @param cursor token of the previous page, null or empty for the first page
+     * @param sort   either 'updated' (latest first) or 'name'
+     * @param count  whether to count all indicators of the user
+     */
+    public CursorResponse<IndicatorResponse> getIndicatorsCreatedBy(Long userId, String cursor, int size, String sort, boolean count) {
+        validatePageNumberAndSize(0, size);
+        if (size < 1) {
+            throw new BadRequestException("Page size must not be less than one.");
+        }
+
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User", "id", userId));
+
+        Pageable pageable = PageRequest.of(0, size + 1);
+        boolean first = cursor == null || cursor.isEmpty();
+        List<Indicator> indicators;
+        if (SORT_BY_UPDATED.equals(sort)) {
+            if (first) {
+                indicators = indicatorRepository.findByCreatedByOrderByUpdatedAtDescIdDesc(user.getId(), pageable);
+            } else {
+                String[] position = decodeCursor(cursor, SORT_BY_UPDATED, 4);
+                Instant updatedAt = Instant.ofEpochSecond(parseCursorPart(position[2]), parseCursorPart(position[3]));
+                indicators = indicatorRepository.findByCreatedByUpdatedBefore(user.getId(), updatedAt, parseCursorPart(position[1]), pageable);
+            }
+        } else if (SORT_BY_NAME.equals(sort)) {
+            if (first) {
+                indicators = indicatorRepository.findByCreatedByOrderByNameAscIdAsc(user.getId(), pageable);
+            } else {
+                String[] position = decodeCursor(cursor, SORT_BY_NAME, 3);
+                indicators = indicatorRepository.findByCreatedByNameAfter(user.getId(), position[2], parseCursorPart(position[1]), pageable);
+            }
+        } else {
+            throw new BadRequestException("Sort must be either '" + SORT_BY_UPDATED + "' or '" + SORT_BY_NAME + "'.");
+        }
+
+        String next = null;
+        if (indicators.size() > size) {
+            indicators = indicators.subList(0, size);
+            Indicator last = indicators.get(size - 1);
+            next = SORT_BY_UPDATED.equals(sort)
+                    ? Cursors.encode(SORT_BY_UPDATED, last.getId(), last.getUpdatedAt().getEpochSecond(), last.getUpdatedAt().getNano())
+                    : Cursors.encode(SORT_BY_NAME, last.getId(), last.getName());
+        }
+
+        List<IndicatorResponse> indicatorResponses = indicators.stream()
+                .map(indicator -> ModelMapper.mapIndicatorToIndicatorResponse(indicator, user))
+                .collect(Collectors.toList());
+        Long totalElements = count ? indicatorRepository.countByCreatedBy(user.getId()) : null;
+
+        return new CursorResponse<>(indicatorResponses, size, next, totalElements);
+    }
+
+    private static String[] decodeCursor(String cursor, String sort, int parts) {
+        String[] position = Cursors.decode(cursor, parts);
+        if (!sort.equals(position[0])) {
+            throw new BadRequestException("Cursor does not match sort '" + sort + "'.");
+        }
+        return position;
+    }
+
+    private static long parseCursorPart(String part) {
+        try {
+            return Long.parseLong(part);
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Invalid cursor", e);
+        }
+    }
+
+    /**
+     * Lists indicators with their record count and latest point, optionally with the values of the
+     * latest {@code sparklinePoints} points. Counts come without any record data, only the latest
+     * records and the chunks holding them are loaded.
+     */
+    public PagedResponse<IndicatorSummary> getIndicatorSummariesCreatedBy(Long userId, int page, int size, int sparklinePoints) {
+        validatePageNumberAndSize(page, size);
+        validateSparklinePoints(sparklinePoints);
+
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User", "id", userId));
+
+        Pageable pageable = PageRequest.of(page, size);
+        Page<IndicatorSummary> summaries = indicatorRepository.findSummariesByCreatedBy(user.getId(), pageable);
+
+        Map<Long, IndicatorSummary> rowSummaries = new HashMap<>();
+        Map<Long, IndicatorSummary> chunkedSummaries = new HashMap<>();
+        for (IndicatorSummary summary : summaries.getContent()) {
+            (summary.isChunked() ? chunkedSummaries : rowSummaries).put(summary.getId(), summary);
+        }
+
+        if (sparklinePoints > 0 && !rowSummaries.isEmpty()) {
+            Map<Long, Series> sparklines = new HashMap<>();
+            for (Object[] row : recordRepository.findLatestByIndicatorIdIn(rowSummaries.keySet(), sparklinePoints)) {
+                sparklines.computeIfAbsent(((Number) row[0]).longValue(), id -> new Series(sparklinePoints))
+                        .append((int) ((Date) row[1]).toLocalDate().toEpochDay(), ((Number) row[2]).doubleValue());
+            }
+            sparklines.forEach((id, series) -> rowSummaries.get(id).setSparkline(valuesOf(series, sparklinePoints)));
+        }
+
+        if (!chunkedSummaries.isEmpty()) {
+            List<Long> tailChunkIds = new ArrayList<>();
+            recordChunkRepository.findCountsByIndicatorIdIn(chunkedSummaries.keySet())
+                    .stream()
+                    .collect(Collectors.groupingBy(RecordChunkCount::getIndicatorId))
+                    .forEach((id, counts) -> tailChunkIds.addAll(countChunks(chunkedSummaries.get(id), counts, sparklinePoints)));
+            if (!tailChunkIds.isEmpty()) {
+                recordChunkRepository.findByIdInOrderByBucket(tailChunkIds)
+                        .stream()
+                        .collect(Collectors.groupingBy(chunk -> chunk.getIndicator().getId()))
+                        .forEach((id, chunks) -> summarizeChunks(chunkedSummaries.get(id), chunks, sparklinePoints));
+            }
+        }
+
+        return new PagedResponse<>(summaries.getContent(), summaries.getNumber(),
+                summaries.getSize(), summaries.getTotalElements(), summaries.getTotalPages(), summaries.isLast());
+    }
+
+    /**
+     * Sets the record count of a chunked indicator from its chunk counts ordered by bucket.
+     *
+     * @return ids of the latest chunks holding the last point and the sparkline
+     */
+    private static List<Long> countChunks(IndicatorSummary summary, List<RecordChunkCount> counts, int sparklinePoints) {
+        summary.setRecordCount(counts.stream().mapToLong(RecordChunkCount::getPointCount).sum());
+
+        List<Long> tailChunkIds = new ArrayList<>();
+        int tailPoints = 0;
+        for (int i = counts.size() - 1; i >= 0 && (tailPoints == 0 || tailPoints < sparklinePoints); i--) {
+            tailChunkIds.add(counts.get(i).getId());
+            tailPoints += counts.get(i).getPointCount();
+        }
+        return tailChunkIds;
+    }
+
+    /**
+     * Fills the last point and the sparkline of a chunked indicator from its latest chunks ordered by bucket.
+     */
+    private static void summarizeChunks(IndicatorSummary summary, List<RecordChunk> chunks, int sparklinePoints) {
+        Series tail = new Series();
+        chunks.forEach(chunk -> tail.appendAll(chunk.decode()));
+        summary.setLastDate(tail.dateAt(tail.size() - 1));
+        summary.setLastValue(tail.valueAt(tail.size() - 1));
+        if (sparklinePoints > 0) {
+            summary.setSparkline(valuesOf(tail, sparklinePoints));
+        }
+    }
+
+    private static double[] valuesOf(Series series, int lastPoints) {
+        int from = Math.max(0, series.size() - lastPoints);
+        double[] values = new double[series.size() - from];
+        for (int i = from; i < series.size(); i++) {
+            values[i - from] = series.valueAt(i);
+        }
+        return values;
+    }
+
+    public List<RollupResponse> getRollups(IndicatorHeader indicator, String bucketName, LocalDate from, LocalDate to) {
+        RollupBucket bucket = parseBucket(bucketName);
+        SeriesService.validateRange(from, to);
+
+        LocalDate firstStart = from == null ? null : bucket.start(from);
+        List<RecordRollup> rollups;
+        if (recordRollupRepository.existsByIndicatorId(indicator.getId())) {
+            rollups = recordRollupRepository.findRange(indicator.getId(), bucket,
+                    SeriesService.lowerBound(firstStart), SeriesService.upperBound(to));
+        } else {
+            // indicators written before rollups existed get them stored on their next write, until then they are computed
+            LocalDate lastDate = to == null ? null : bucket.next(bucket.start(to)).minusDays(1);
+            rollups = RecordRollup.build(null, bucket, seriesService.getSeries(indicator, firstStart, lastDate));
+        }
+
+        return rollups.stream()
+                .map(ModelMapper::mapRollupToRollupResponse)
+                .collect(Collectors.toList());
+    }
+
+    private RollupBucket parseBucket(String bucketName) {
+        try {
+            return RollupBucket.valueOf(bucketName.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Bucket must be one of " + Arrays.toString(RollupBucket.values()), e);
+        }
+    }
+
     public Indicator createIndicator(IndicatorRequest indicatorRequest) {
         Indicator indicator = new Indicator();
         indicator.setName(indicatorRequest.getName());
         indicator.setUnit(indicatorRequest.getUnit());
+        indicator.setStorageMode(storageMode);
 
         return indicatorRepository.save(indicator);
     }
 
+    private void validateSparklinePoints(int sparklinePoints) {
+        if (sparklinePoints < 0 || sparklinePoints > AppConstants.MAX_SPARKLINE_POINTS) {
+            throw new BadRequestException("Sparkline points must be between 0 and " + AppConstants.MAX_SPARKLINE_POINTS);
+        }
+    }
+
     private void validatePageNumberAndSize(int page, int size) {
         if (page < 0) {
             throw new BadRequestException("Page number cannot be less than zero.");
@@ -77,12 +312,4 @@ public class IndicatorService {
         return indicatorRepository.save(indicator);
 
     }
-
-    public Indicator updateIndicator(Indicator indicator, Indicator rawIndicator) {
-        indicator.setName(rawIndicator.getName());
-        indicator.setUnit(rawIndicator.getUnit());
-        indicator.clearRecords();
-        indicator.addRecords(rawIndicator.getRecords());
-        return indicatorRepository.save(indicator);
-    }
 }
@@ -0,0 +1,826 @@
+package top.valiev.grafeo.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import top.valiev.grafeo.exeption.BadRequestException;
+import top.valiev.grafeo.model.Indicator;
+import top.valiev.grafeo.model.RecordChunk;
+import top.valiev.grafeo.model.RecordRollup;
+import top.valiev.grafeo.model.RecordTombstone;
+import top.valiev.grafeo.model.RollupBucket;
+import top.valiev.grafeo.model.series.PointConsumer;
+import top.valiev.grafeo.model.series.Series;
+import top.valiev.grafeo.model.series.SeriesBuilder;
+import top.valiev.grafeo.payload.ChangesResponse;
+import top.valiev.grafeo.payload.RecordBatchRequest;
+import top.valiev.grafeo.payload.RecordMutationResponse;
+import top.valiev.grafeo.payload.RecordResponse;
+import top.valiev.grafeo.payload.RecordStatsResponse;
+import top.valiev.grafeo.payload.RecordSummary;
+import top.valiev.grafeo.payload.RecordValueRequest;
+import top.valiev.grafeo.repository.IndicatorHeader;
+import top.valiev.grafeo.repository.IndicatorRepository;
+import top.valiev.grafeo.repository.RecordChunkRepository;
+import top.valiev.grafeo.repository.RecordRepository;
+import top.valiev.grafeo.repository.RecordRollupRepository;
+import top.valiev.grafeo.repository.RecordTombstoneRepository;
+import top.valiev.grafeo.util.AppConstants;
+
+import java.sql.Date;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Service
+public class RecordService {
+
+    @Autowired
+    private RecordRepository recordRepository;
+
+    @Autowired
+    private SeriesService seriesService;
+
+    @Autowired
+    private IndicatorRepository indicatorRepository;
+
+    @Autowired
+    private RecordRollupRepository recordRollupRepository;
+
+    @Autowired
+    private RecordChunkRepository recordChunkRepository;
+
+    @Autowired
+    private RecordTombstoneRepository recordTombstoneRepository;
+
+    public List<RecordResponse> getRecords(IndicatorHeader indicator, LocalDate from, LocalDate to, int limit, String order) {
+        SeriesService.validateRange(from, to);
+        validateLimit(limit);
+        Sort.Direction direction = parseDirection(order);
+
+        if (!indicator.isChunked()) {
+            PageRequest pageable = PageRequest.of(0, limit, Sort.by(direction, "date"));
+            return recordRepository.findRange(indicator.getId(), SeriesService.lowerBound(from), SeriesService.upperBound(to), pageable);
+        }
+
+        Series series = seriesService.getSeries(indicator, from, to);
+        int count = Math.min(limit, series.size());
+        List<RecordResponse> recordResponses = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int index = direction.isAscending() ? i : series.size() - 1 - i;
+            recordResponses.add(new RecordResponse(series.dayAt(index), series.valueAt(index), series.dateAt(index)));
+        }
+        return recordResponses;
+    }
+
+    /**
+     * Writes a single record without loading the indicator, a chunked record re-encodes the chunk of its year only.
+     *
+     * @return stored record, empty if the same value was already there
+     */
+    @Transactional
+    public Optional<RecordResponse> upsertRecord(IndicatorHeader indicator, LocalDate date, double value, Long userId) {
+        Instant now = Instant.now();
+        long version = nextChangeVersion(indicator, userId, now);
+        if (indicator.isChunked()) {
+            Series point = new Series(1);
+            point.append((int) date.toEpochDay(), value);
+            if (upsertChunks(indicator, point, () -> version, userId) == 0) {
+                TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+                return Optional.empty();
+            }
+            refreshRollups(indicator, date);
+            return Optional.of(new RecordResponse(date.toEpochDay(), value, date));
+        }
+
+        if (recordRepository.upsert(indicator.getId(), date, value, version, userId, now) == 0) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return Optional.empty();
+        }
+        refreshRollups(indicator, date);
+        return recordRepository.findByIndicatorIdAndDate(indicator.getId(), date);
+    }
+
+    /**
+     * Deletes a single record without loading the indicator, a chunked record re-encodes the chunk of its year only.
+     *
+     * @return deleted record, empty if there was no record for the date
+     */
+    @Transactional
+    public Optional<RecordResponse> deleteRecord(IndicatorHeader indicator, LocalDate date, Long userId) {
+        Instant now = Instant.now();
+        long version = nextChangeVersion(indicator, userId, now);
+        Optional<RecordResponse> record = indicator.isChunked()
+                ? deleteFromChunk(indicator, date, version, userId)
+                : deleteRow(indicator, date);
+        if (!record.isPresent()) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return Optional.empty();
+        }
+        recordTombstoneRepository.save(new RecordTombstone(indicatorRepository.getOne(indicator.getId()), date, version));
+        refreshRollups(indicator, date);
+        return record;
+    }
+
+    private Optional<RecordResponse> deleteRow(IndicatorHeader indicator, LocalDate date) {
+        Optional<RecordResponse> record = recordRepository.findByIndicatorIdAndDate(indicator.getId(), date);
+        if (!record.isPresent() || recordRepository.deleteByIndicatorIdAndDate(indicator.getId(), date) == 0) {
+            return Optional.empty();
+        }
+        return record;
+    }
+
+    private Optional<RecordResponse> deleteFromChunk(IndicatorHeader indicator, LocalDate date, long version, Long userId) {
+        Optional<RecordChunk> chunk = recordChunkRepository.findByIndicatorIdAndBucket(indicator.getId(), RecordChunk.bucketOf(date));
+        if (!chunk.isPresent()) {
+            return Optional.empty();
+        }
+        Series stored = chunk.get().decode();
+        int index = stored.indexOf((int) date.toEpochDay());
+        if (index < 0) {
+            return Optional.empty();
+        }
+        RecordResponse record = new RecordResponse(stored.dayAt(index), stored.valueAt(index), date);
+        stored.remove(stored.dayAt(index));
+        // an emptied chunk of the bucket is kept and reused
+        saveChunk(chunk.get(), stored, version, userId);
+        return Optional.of(record);
+    }
+
+    /**
+     * Upserts a batch of records, later points win over earlier ones with the same date.
+     * Chunked records are written by encoding again the chunks of the touched years only.
+     *
+     * @return number of inserted or changed records
+     */
+    @Transactional
+    public int upsertRecords(IndicatorHeader indicator, RecordBatchRequest batchRequest, Long userId) {
+        validateBatch(batchRequest);
+        return upsertRecords(indicator, toSeries(batchRequest), userId);
+    }
+
+    /**
+     * Upserts an already sorted series of points, e.g. the demo data, with one change version.
+     *
+     * @return number of inserted or changed records
+     */
+    @Transactional
+    public int upsertRecords(IndicatorHeader indicator, Series series, Long userId) {
+        if (series.size() == 0) {
+            return 0;
+        }
+        Instant now = Instant.now();
+        long version = nextChangeVersion(indicator, userId, now);
+        int changed = indicator.isChunked()
+                ? upsertChunks(indicator, series, () -> version, userId)
+                : recordRepository.upsertAll(indicator.getId(), series, version, userId, now);
+        if (changed == 0) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return 0;
+        }
+        refreshRollups(indicator, series.dateAt(0), series.dateAt(series.size() - 1));
+        return changed;
+    }
+
+    /**
+     * Writes the points into the chunks of their years, only the touched chunks are decoded and encoded again.
+     *
+     * @param version supplies the change version, only asked for when a chunk changes
+     * @return number of inserted or changed points
+     */
+    private int upsertChunks(IndicatorHeader indicator, Series points, LongSupplier version, Long userId) {
+        int changed = 0;
+        for (int from = 0; from < points.size(); ) {
+            int bucket = RecordChunk.bucketOf(points.dayAt(from));
+            int to = points.ceilingIndex((int) LocalDate.of(bucket + 1, 1, 1).toEpochDay());
+            RecordChunk chunk = recordChunkRepository.findByIndicatorIdAndBucket(indicator.getId(), bucket)
+                    .orElseGet(() -> newChunk(indicator, bucket));
+            Series stored = chunk.decode();
+            int chunkChanged = 0;
+            for (int i = from; i < to; i++) {
+                if (stored.put(points.dayAt(i), points.valueAt(i))) {
+                    chunkChanged++;
+                }
+            }
+            if (chunkChanged > 0) {
+                saveChunk(chunk, stored, version.getAsLong(), userId);
+                changed += chunkChanged;
+            }
+            from = to;
+        }
+        return changed;
+    }
+
+    private void saveChunk(RecordChunk chunk, Series series, long version, Long userId) {
+        chunk.replace(series);
+        chunk.setChangeVersion(version);
+        chunk.setUpdatedBy(userId);
+        recordChunkRepository.save(chunk);
+    }
+
+    /**
+     * Starts making the records of the indicator equal to the points passed to the returned merge.
+     * The stored records are read through a cursor, so the merge must be used and closed within the transaction.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public RecordMerge openMerge(IndicatorHeader indicator, Long userId) {
+        return new RecordMerge(indicator, userId);
+    }
+
+    private RecordChunk newChunk(IndicatorHeader indicator, int bucket) {
+        RecordChunk chunk = new RecordChunk(indicatorRepository.getOne(indicator.getId()), bucket);
+        chunk.setCreatedBy(indicator.getCreatedBy());
+        return chunk;
+    }
+
+    /**
+     * Merges incoming points with the stored ones in date order, only the points that differ are written
+     * and deleted points leave tombstones. Points in date order are merged in batches as they arrive;
+     * once a point comes out of order the rest of the input is buffered and sorted when the merge finishes,
+     * points that fall before the already merged ones are then written over them.
+     * Changes are written under a version taken on the first change.
+     */
+    public class RecordMerge implements PointConsumer, AutoCloseable {
+
+        private static final int NO_BUCKET = Integer.MIN_VALUE;
+
+        private final IndicatorHeader indicator;
+        private final Long userId;
+        private final Instant now = Instant.now();
+        private final Series batch = new Series(AppConstants.IMPORT_BATCH_RECORDS);
+        private final Series upserts = new Series(AppConstants.IMPORT_BATCH_RECORDS);
+        private final List<LocalDate> deletes = new ArrayList<>();
+        private SeriesBuilder unordered;
+        private int mergedDay = Integer.MIN_VALUE;
+        private long points;
+        private long version;
+        private int changed;
+        private int firstDay = Integer.MAX_VALUE;
+        private int lastDay = Integer.MIN_VALUE;
+
+        private Stream<RecordResponse> rowStream;
+        private Iterator<RecordResponse> rows;
+        private RecordResponse row;
+        private Stream<RecordChunk> chunkStream;
+        private Iterator<RecordChunk> chunks;
+        private RecordChunk chunk;
+        private final Series bucketPoints = new Series();
+        private int bucket = NO_BUCKET;
+
+        RecordMerge(IndicatorHeader indicator, Long userId) {
+            this.indicator = indicator;
+            this.userId = userId;
+        }
+
+        /**
+         * @return number of points received so far
+         */
+        public long getPoints() {
+            return points;
+        }
+
+        @Override
+        public void accept(int day, double value) {
+            points++;
+            if (unordered != null) {
+                unordered.add(day, value);
+                return;
+            }
+            if (batch.isEmpty() ? day <= mergedDay : day < batch.lastDay()) {
+                unordered = new SeriesBuilder();
+                for (int i = 0; i < batch.size(); i++) {
+                    unordered.add(batch.dayAt(i), batch.valueAt(i));
+                }
+                unordered.add(day, value);
+                batch.clear();
+                return;
+            }
+            if (!batch.isEmpty() && day == batch.lastDay()) {
+                batch.put(day, value);
+                return;
+            }
+            batch.append(day, value);
+            if (batch.size() == AppConstants.IMPORT_BATCH_RECORDS) {
+                mergeOrdered(batch);
+                batch.clear();
+            }
+        }
+
+        /**
+         * Deletes the stored points that were not received and writes the remaining changes.
+         *
+         * @return number of inserted, changed and deleted records
+         */
+        public int finish() {
+            Series late = new Series();
+            if (unordered != null) {
+                Series rest = unordered.build();
+                int split = rest.higherIndex(mergedDay);
+                late = rest.slice(0, split);
+                mergeOrdered(rest.slice(split, rest.size()));
+            } else {
+                mergeOrdered(batch);
+            }
+            mergeRemaining();
+            flush();
+            if (!late.isEmpty()) {
+                if (indicator.isChunked()) {
+                    upsertLateChunks(late);
+                } else {
+                    upsertRows(late);
+                }
+            }
+
+            if (changed > 0) {
+                refreshRollups(indicator, LocalDate.ofEpochDay(firstDay), LocalDate.ofEpochDay(lastDay));
+            }
+            return changed;
+        }
+
+        @Override
+        public void close() {
+            if (rowStream != null) {
+                rowStream.close();
+            }
+            if (chunkStream != null) {
+                chunkStream.close();
+            }
+        }
+
+        private void mergeOrdered(Series incoming) {
+            if (incoming.isEmpty()) {
+                return;
+            }
+            openStored();
+            for (int i = 0; i < incoming.size(); i++) {
+                int day = incoming.dayAt(i);
+                if (indicator.isChunked()) {
+                    int incomingBucket = RecordChunk.bucketOf(day);
+                    if (incomingBucket != bucket) {
+                        mergeBucket();
+                        bucket = incomingBucket;
+                    }
+                    bucketPoints.append(day, incoming.valueAt(i));
+                    continue;
+                }
+                while (row != null && row.getDate().toEpochDay() < day) {
+                    delete((int) row.getDate().toEpochDay());
+                    nextRow();
+                }
+                if (row == null || row.getDate().toEpochDay() > day) {
+                    upsert(day, incoming.valueAt(i));
+                } else {
+                    if (Double.compare(row.getValue(), incoming.valueAt(i)) != 0) {
+                        upsert(day, incoming.valueAt(i));
+                    }
+                    nextRow();
+                }
+            }
+            mergedDay = incoming.lastDay();
+        }
+
+        private void mergeRemaining() {
+            openStored();
+            if (indicator.isChunked()) {
+                mergeBucket();
+                bucket = Integer.MAX_VALUE;
+                mergeBucket();
+            } else {
+                for (; row != null; nextRow()) {
+                    delete((int) row.getDate().toEpochDay());
+                }
+            }
+        }
+
+        /**
+         * Empties the stored chunks before the open bucket, then replaces the points of the open bucket.
+         */
+        private void mergeBucket() {
+            for (; chunk != null && chunk.getBucket() < bucket; chunk = chunks.hasNext() ? chunks.next() : null) {
+                replaceChunk(chunk.getBucket(), chunk, new Series());
+            }
+            if (bucket == NO_BUCKET || bucket == Integer.MAX_VALUE) {
+                return;
+            }
+            if (chunk != null && chunk.getBucket() == bucket) {
+                replaceChunk(bucket, chunk, bucketPoints);
+                chunk = chunks.hasNext() ? chunks.next() : null;
+            } else {
+                replaceChunk(bucket, null, bucketPoints);
+            }
+            bucketPoints.clear();
+        }
+
+        private void replaceChunk(int chunkBucket, RecordChunk stored, Series incoming) {
+            Series storedPoints = stored == null ? new Series() : stored.decode();
+            int chunkChanged = 0;
+            for (int s = 0, n = 0; s < storedPoints.size() || n < incoming.size(); ) {
+                int storedDay = s < storedPoints.size() ? storedPoints.dayAt(s) : Integer.MAX_VALUE;
+                int incomingDay = n < incoming.size() ? incoming.dayAt(n) : Integer.MAX_VALUE;
+                if (storedDay < incomingDay) {
+                    delete(storedDay);
+                } else if (storedDay > incomingDay || Double.compare(storedPoints.valueAt(s), incoming.valueAt(n)) != 0) {
+                    track(incomingDay);
+                    chunkChanged++;
+                }
+                s += storedDay <= incomingDay ? 1 : 0;
+                n += incomingDay <= storedDay ? 1 : 0;
+            }
+
+            if (chunkChanged > 0 || incoming.size() != storedPoints.size()) {
+                // an emptied chunk of the bucket is kept and reused
+                RecordChunk target = stored != null ? stored : recordChunkRepository.findByIndicatorIdAndBucket(indicator.getId(), chunkBucket)
+                        .orElseGet(() -> newChunk(indicator, chunkBucket));
+                saveChunk(target, incoming, version(), userId);
+            }
+        }
+
+        /**
+         * Writes the points over the records without deleting any, for points that arrived after later ones were merged.
+         */
+        private void upsertRows(Series late) {
+            for (int from = 0; from < late.size(); from += AppConstants.IMPORT_BATCH_RECORDS) {
+                int to = Math.min(from + AppConstants.IMPORT_BATCH_RECORDS, late.size());
+                Series stored = new Series();
+                recordRepository.findRange(indicator.getId(), late.dateAt(from), late.dateAt(to - 1))
+                        .forEach(r -> stored.append((int) r.getDate().toEpochDay(), r.getValue()));
+                for (int i = from; i < to; i++) {
+                    int index = stored.indexOf(late.dayAt(i));
+                    if (index < 0 || Double.compare(stored.valueAt(index), late.valueAt(i)) != 0) {
+                        upsert(late.dayAt(i), late.valueAt(i));
+                    }
+                }
+            }
+            flush();
+        }
+
+        private void upsertLateChunks(Series late) {
+            int lateChanged = upsertChunks(indicator, late, this::version, userId);
+            if (lateChanged > 0) {
+                changed += lateChanged;
+                firstDay = Math.min(firstDay, late.firstDay());
+                lastDay = Math.max(lastDay, late.lastDay());
+            }
+        }
+
+        private void openStored() {
+            if (indicator.isChunked() && chunkStream == null) {
+                chunkStream = recordChunkRepository.streamByIndicatorId(indicator.getId());
+                chunks = chunkStream.iterator();
+                chunk = chunks.hasNext() ? chunks.next() : null;
+            } else if (!indicator.isChunked() && rowStream == null) {
+                rowStream = recordRepository.streamByIndicatorId(indicator.getId());
+                rows = rowStream.iterator();
+                nextRow();
+            }
+        }
+
+        private void nextRow() {
+            row = rows.hasNext() ? rows.next() : null;
+        }
+
+        long version() {
+            if (version == 0) {
+                version = nextChangeVersion(indicator, userId, now);
+            }
+            return version;
+        }
+
+        void track(int day) {
+            changed++;
+            firstDay = Math.min(firstDay, day);
+            lastDay = Math.max(lastDay, day);
+        }
+
+        void upsert(int day, double value) {
+            track(day);
+            upserts.append(day, value);
+            if (upserts.size() == AppConstants.IMPORT_BATCH_RECORDS) {
+                flush();
+            }
+        }
+
+        void delete(int day) {
+            track(day);
+            deletes.add(LocalDate.ofEpochDay(day));
+            if (deletes.size() == AppConstants.IMPORT_BATCH_RECORDS) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (!upserts.isEmpty()) {
+                recordRepository.upsertAll(indicator.getId(), upserts, version(), userId, now);
+                upserts.clear();
+            }
+            if (!deletes.isEmpty()) {
+                if (!indicator.isChunked()) {
+                    recordRepository.deleteByIndicatorIdAndDateIn(indicator.getId(), deletes);
+                }
+                Indicator reference = indicatorRepository.getOne(indicator.getId());
+                long deleteVersion = version();
+                recordTombstoneRepository.saveAll(deletes.stream()
+                        .map(date -> new RecordTombstone(reference, date, deleteVersion))
+                        .collect(Collectors.toList()));
+                deletes.clear();
+            }
+        }
+    }
+
+    /**
+     * Collects the records changed and deleted after the given version. Clients that never synced
+     * get the whole series.
+     */
+    public ChangesResponse getChanges(IndicatorHeader indicator, long since) {
+        if (since < 0) {
+            throw new BadRequestException("Version must not be less than zero.");
+        }
+
+        long version = indicator.getChangeVersion() == null ? 0 : indicator.getChangeVersion();
+
+        ChangesResponse changesResponse = new ChangesResponse();
+        changesResponse.setIndicatorId(indicator.getId());
+        changesResponse.setVersion(version);
+        changesResponse.setDeletes(new ArrayList<>());
+        if (since >= version) {
+            changesResponse.setUpserts(new ArrayList<>());
+            return changesResponse;
+        }
+
+        if (since == 0) {
+            changesResponse.setReset(true);
+            changesResponse.setUpserts(indicator.isChunked()
+                    ? toRecordResponses(seriesService.getSeries(indicator, null, null))
+                    : recordRepository.findRange(indicator.getId(), SeriesService.lowerBound(null), SeriesService.upperBound(null)));
+            return changesResponse;
+        }
+
+        List<RecordResponse> upserts;
+        if (indicator.isChunked()) {
+            // a changed chunk is sent whole, the points it still holds are upserts
+            Series series = new Series();
+            recordChunkRepository.findChangedSince(indicator.getId(), since)
+                    .forEach(chunk -> series.appendAll(chunk.decode()));
+            upserts = toRecordResponses(series);
+        } else {
+            upserts = recordRepository.findChangedSince(indicator.getId(), since);
+        }
+        changesResponse.setUpserts(upserts);
+        changesResponse.setDeletes(recordTombstoneRepository.findDatesDeletedSince(indicator.getId(), since));
+        return changesResponse;
+    }
+
+    /**
+     * Builds the constant size answer to a record write.
+     *
+     * @param record written or deleted record, null if nothing changed
+     */
+    public RecordMutationResponse getMutationResponse(IndicatorHeader indicator, RecordResponse record) {
+        RecordMutationResponse mutationResponse = new RecordMutationResponse();
+        mutationResponse.setIndicatorId(indicator.getId());
+        mutationResponse.setVersion(indicatorRepository.findChangeVersionById(indicator.getId()));
+        mutationResponse.setChanged(record != null);
+        mutationResponse.setRecord(record);
+        mutationResponse.setSummary(getSummary(indicator));
+        return mutationResponse;
+    }
+
+    /**
+     * Chunked records are summarized from their year rollups, so a write does not decode every chunk.
+     * Indicators without stored rollups are decoded until their next write builds them.
+     */
+    public RecordSummary getSummary(IndicatorHeader indicator) {
+        if (indicator.isChunked()) {
+            List<RecordRollup> years = recordRollupRepository.existsByIndicatorId(indicator.getId())
+                    ? recordRollupRepository.findRange(indicator.getId(), RollupBucket.YEAR,
+                    SeriesService.lowerBound(null), SeriesService.upperBound(null))
+                    : RecordRollup.build(null, RollupBucket.YEAR, seriesService.getSeries(indicator, null, null));
+            return summarize(years);
+        }
+
+        RecordSummary summary = recordRepository.summarize(indicator.getId());
+        if (summary.getLastDate() != null) {
+            recordRepository.findByIndicatorIdAndDate(indicator.getId(), summary.getLastDate())
+                    .ifPresent(last -> summary.setLastValue(last.getValue()));
+        }
+        return summary;
+    }
+
+    private static RecordSummary summarize(List<RecordRollup> rollups) {
+        if (rollups.isEmpty()) {
+            return new RecordSummary(0, null, null, null, null);
+        }
+        long count = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (RecordRollup rollup : rollups) {
+            count += rollup.getPointCount();
+            min = Math.min(min, rollup.getMinValue());
+            max = Math.max(max, rollup.getMaxValue());
+        }
+        RecordRollup last = rollups.get(rollups.size() - 1);
+        return new RecordSummary(count, min, max, rollups.get(0).getFirstDate(), last.getLastDate(), last.getLastValue());
+    }
+
+    /**
+     * Row-stored records are aggregated by the database over the indexed date range, chunked
+     * series are scanned once over the decoded chunks of the range.
+     */
+    public RecordStatsResponse getStats(IndicatorHeader indicator, LocalDate from, LocalDate to) {
+        SeriesService.validateRange(from, to);
+        RecordStatsResponse stats = new RecordStatsResponse();
+        stats.setIndicatorId(indicator.getId());
+
+        if (indicator.isChunked()) {
+            fillStats(stats, seriesService.getSeries(indicator, from, to));
+        } else {
+            Object[] row = recordRepository.aggregateRange(indicator.getId(),
+                    SeriesService.lowerBound(from), SeriesService.upperBound(to)).get(0);
+            stats.setCount(((Number) row[0]).longValue());
+            if (stats.getCount() > 0) {
+                stats.setMin(toDouble(row[1]));
+                stats.setMax(toDouble(row[2]));
+                stats.setMean(toDouble(row[3]));
+                stats.setStddev(stats.getCount() > 1 ? toDouble(row[4]) : null);
+                stats.setFirst(recordRepository.findByIndicatorIdAndDate(indicator.getId(), toLocalDate(row[5])).orElse(null));
+                stats.setLast(recordRepository.findByIndicatorIdAndDate(indicator.getId(), toLocalDate(row[6])).orElse(null));
+            }
+        }
+
+        if (stats.getFirst() != null && stats.getLast() != null) {
+            double first = stats.getFirst().getValue();
+            double change = stats.getLast().getValue() - first;
+            stats.setChange(change);
+            stats.setChangePercent(first == 0 ? null : change / Math.abs(first) * 100);
+        }
+        return stats;
+    }
+
+    /**
+     * Single pass with Welford's update, which keeps the variance accurate for large values.
+     */
+    private static void fillStats(RecordStatsResponse stats, Series series) {
+        int count = series.size();
+        stats.setCount(count);
+        if (count == 0) {
+            return;
+        }
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double mean = 0;
+        double squares = 0;
+        for (int i = 0; i < count; i++) {
+            double value = series.valueAt(i);
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            double delta = value - mean;
+            mean += delta / (i + 1);
+            squares += delta * (value - mean);
+        }
+        stats.setMin(min);
+        stats.setMax(max);
+        stats.setMean(mean);
+        stats.setStddev(count > 1 ? Math.sqrt(squares / (count - 1)) : null);
+        stats.setFirst(new RecordResponse(series.dayAt(0), series.valueAt(0), series.dateAt(0)));
+        stats.setLast(new RecordResponse(series.dayAt(count - 1), series.valueAt(count - 1), series.dateAt(count - 1)));
+    }
+
+    private static Double toDouble(Object value) {
+        return value == null ? null : ((Number) value).doubleValue();
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        return value instanceof Date ? ((Date) value).toLocalDate() : (LocalDate) value;
+    }
+
+    /**
+     * Bumps the change version first, so writers of the same indicator are serialized on its row.
+     */
+    private long nextChangeVersion(IndicatorHeader indicator, Long userId, Instant now) {
+        indicatorRepository.touch(indicator.getId(), userId, now);
+        return indicatorRepository.findChangeVersionById(indicator.getId());
+    }
+
+    private static List<RecordResponse> toRecordResponses(Series series) {
+        List<RecordResponse> recordResponses = new ArrayList<>(series.size());
+        for (int i = 0; i < series.size(); i++) {
+            recordResponses.add(new RecordResponse(series.dayAt(i), series.valueAt(i), series.dateAt(i)));
+        }
+        return recordResponses;
+    }
+
+    private void validateBatch(RecordBatchRequest batchRequest) {
+        if (batchRequest.getRecords() == null || batchRequest.getRecords().isEmpty()) {
+            throw new BadRequestException("Batch must contain at least one record.");
+        }
+
+        if (batchRequest.getRecords().size() > AppConstants.MAX_BATCH_RECORDS) {
+            throw new BadRequestException("Batch must not contain more than " + AppConstants.MAX_BATCH_RECORDS + " records");
+        }
+
+        for (RecordValueRequest record : batchRequest.getRecords()) {
+            if (record.getDate() == null || record.getValue() == null) {
+                throw new BadRequestException("Every record must have a date and a value.");
+            }
+        }
+    }
+
+    private static Series toSeries(RecordBatchRequest batchRequest) {
+        Series series = new Series(batchRequest.getRecords().size());
+        for (RecordValueRequest record : batchRequest.getRecords()) {
+            series.put((int) record.getDate().toEpochDay(), record.getValue());
+        }
+        return series;
+    }
+
+    private void refreshRollups(IndicatorHeader indicator, LocalDate date) {
+        refreshRollups(indicator, date, date);
+    }
+
+    /**
+     * Recomputes the rollups covering the dates from the records of these buckets only,
+     * for chunked records only the chunks of the years of these buckets are decoded.
+     * Only buckets holding records are stored, rollups of buckets left without records are deleted.
+     * Indicators written before rollups existed get all their rollups built on the first write.
+     */
+    private void refreshRollups(IndicatorHeader indicator, LocalDate firstDate, LocalDate lastDate) {
+        Long indicatorId = indicator.getId();
+        if (!recordRollupRepository.existsByIndicatorId(indicatorId)) {
+            Series series = seriesService.getSeries(indicator, null, null);
+            Indicator reference = indicatorRepository.getOne(indicatorId);
+            for (RollupBucket bucket : RollupBucket.values()) {
+                recordRollupRepository.saveAll(RecordRollup.build(reference, bucket, series));
+            }
+            return;
+        }
+
+        LocalDate from = firstDate;
+        LocalDate to = lastDate;
+        for (RollupBucket bucket : RollupBucket.values()) {
+            LocalDate start = bucket.start(firstDate);
+            from = start.isBefore(from) ? start : from;
+            LocalDate end = bucket.next(bucket.start(lastDate));
+            to = end.isAfter(to) ? end : to;
+        }
+
+        Series series = seriesService.getSeries(indicator, from, to.minusDays(1));
+
+        Map<RollupBucket, Map<LocalDate, RecordRollup>> stored = new EnumMap<>(RollupBucket.class);
+        for (RecordRollup rollup : recordRollupRepository.findByIndicatorIdAndBucketStartBetween(indicatorId, from, to)) {
+            stored.computeIfAbsent(rollup.getBucket(), b -> new HashMap<>()).put(rollup.getBucketStart(), rollup);
+        }
+        Indicator reference = indicatorRepository.getOne(indicatorId);
+        List<RecordRollup> changed = new ArrayList<>();
+        List<RecordRollup> emptied = new ArrayList<>();
+        for (RollupBucket bucket : RollupBucket.values()) {
+            LocalDate start = bucket.start(firstDate);
+            LocalDate end = bucket.next(bucket.start(lastDate));
+            Map<LocalDate, RecordRollup> bucketRollups = stored.getOrDefault(bucket, new HashMap<>());
+            Series points = series.slice(series.ceilingIndex((int) start.toEpochDay()), series.ceilingIndex((int) end.toEpochDay()));
+            for (RecordRollup rollup : RecordRollup.build(reference, bucket, points)) {
+                RecordRollup storedRollup = bucketRollups.remove(rollup.getBucketStart());
+                if (storedRollup != null) {
+                    storedRollup.recompute(points);
+                    rollup = storedRollup;
+                }
+                changed.add(rollup);
+            }
+            bucketRollups.values().stream()
+                    .filter(rollup -> !rollup.getBucketStart().isBefore(start) && rollup.getBucketStart().isBefore(end))
+                    .forEach(emptied::add);
+        }
+        recordRollupRepository.deleteAll(emptied);
+        recordRollupRepository.saveAll(changed);
+    }
+
+    private Sort.Direction parseDirection(String order) {
+        try {
+            return Sort.Direction.fromString(order);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Order must be either 'asc' or 'desc'.", e);
+        }
+    }
+
+    private void validateLimit(int limit) {
+        if (limit < 1) {
+            throw new BadRequestException("Limit must not be less than one.");
+        }
+
+        if (limit > AppConstants.MAX_RECORDS_LIMIT) {
+            throw new BadRequestException("Limit must not be greater than " + AppConstants.MAX_RECORDS_LIMIT);
+        }
+    }
+}
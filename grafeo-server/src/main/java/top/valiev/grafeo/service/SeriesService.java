@@ -0,0 +1,169 @@
+package top.valiev.grafeo.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import top.valiev.grafeo.exeption.BadRequestException;
+import top.valiev.grafeo.model.RecordChunk;
+import top.valiev.grafeo.model.RollupBucket;
+import top.valiev.grafeo.model.series.Series;
+import top.valiev.grafeo.payload.RecordResponse;
+import top.valiev.grafeo.payload.ResampleResponse;
+import top.valiev.grafeo.payload.SeriesResponse;
+import top.valiev.grafeo.repository.IndicatorHeader;
+import top.valiev.grafeo.repository.RecordChunkRepository;
+import top.valiev.grafeo.repository.RecordRepository;
+import top.valiev.grafeo.service.series.SeriesDownsampler;
+import top.valiev.grafeo.service.series.SeriesOperator;
+import top.valiev.grafeo.service.series.SeriesResampler;
+import top.valiev.grafeo.util.AppConstants;
+import top.valiev.grafeo.util.ModelMapper;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+@Service
+public class SeriesService {
+
+    private static final LocalDate MIN_DATE = LocalDate.of(1, 1, 1);
+    private static final LocalDate MAX_DATE = LocalDate.of(9999, 12, 31);
+
+    @Autowired
+    private RecordRepository recordRepository;
+
+    @Autowired
+    private RecordChunkRepository recordChunkRepository;
+
+    public Series getSeries(IndicatorHeader indicator, LocalDate from, LocalDate to) {
+        validateRange(from, to);
+        LocalDate lowerBound = lowerBound(from);
+        LocalDate upperBound = upperBound(to);
+
+        if (!indicator.isChunked()) {
+            List<RecordResponse> records = recordRepository.findRange(indicator.getId(), lowerBound, upperBound);
+            Series series = new Series(records.size());
+            for (RecordResponse record : records) {
+                series.append((int) record.getDate().toEpochDay(), record.getValue());
+            }
+            return series;
+        }
+
+        int fromDay = (int) lowerBound.toEpochDay();
+        int toDay = (int) upperBound.toEpochDay();
+        Series series = new Series();
+        for (RecordChunk chunk : recordChunkRepository.findOverlapping(indicator.getId(), fromDay, toDay)) {
+            Series chunkSeries = chunk.decode();
+            series.appendAll(chunkSeries.slice(chunkSeries.ceilingIndex(fromDay), chunkSeries.higherIndex(toDay)));
+        }
+        return series;
+    }
+
+    public SeriesResponse getDownsampledSeries(IndicatorHeader indicator, LocalDate from, LocalDate to, int points) {
+        validatePoints(points);
+        Series series = getSeries(indicator, from, to);
+        Series sampled = SeriesDownsampler.lttb(series, points);
+        return ModelMapper.mapSeriesToSeriesResponse(indicator.getId(), sampled, series.size());
+    }
+
+    /**
+     * Applies the operator to the range first and downsamples the result, so the
+     * window always spans stored points rather than sampled ones.
+     */
+    public SeriesResponse getDerivedSeries(IndicatorHeader indicator, String operatorName, int window,
+                                           LocalDate from, LocalDate to, int points) {
+        SeriesOperator operator = parseEnum(SeriesOperator.class, "Operator", operatorName);
+        validateWindow(window);
+        validatePoints(points);
+        Series derived = operator.apply(getSeries(indicator, from, to), window);
+        Series sampled = SeriesDownsampler.lttb(derived, points);
+        return ModelMapper.mapSeriesToSeriesResponse(indicator.getId(), sampled, derived.size());
+    }
+
+    /**
+     * Aligns the indicators on a grid of {@code step} buckets with a single k-way merge over their series.
+     */
+    public ResampleResponse getResampledSeries(List<IndicatorHeader> indicators, String stepName, String fillName,
+                                               String aggregationName, LocalDate from, LocalDate to) {
+        RollupBucket step = parseEnum(RollupBucket.class, "Step", stepName);
+        SeriesResampler.Fill fill = parseEnum(SeriesResampler.Fill.class, "Fill", fillName);
+        SeriesResampler.Aggregation aggregation = parseEnum(SeriesResampler.Aggregation.class, "Aggregation", aggregationName);
+
+        List<Series> series = new ArrayList<>(indicators.size());
+        for (IndicatorHeader indicator : indicators) {
+            series.add(getSeries(indicator, from, to));
+        }
+        SeriesResampler resampled;
+        try {
+            resampled = SeriesResampler.resample(series, step, aggregation, fill, AppConstants.MAX_SERIES_POINTS);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage() + ", narrow the range or use a larger step", e);
+        }
+
+        List<LocalDate> dates = new ArrayList<>(resampled.size());
+        for (int i = 0; i < resampled.size(); i++) {
+            dates.add(LocalDate.ofEpochDay(resampled.dayAt(i)));
+        }
+        Double[][] values = new Double[indicators.size()][];
+        for (int s = 0; s < values.length; s++) {
+            double[] column = resampled.valuesOf(s);
+            values[s] = new Double[resampled.size()];
+            for (int i = 0; i < resampled.size(); i++) {
+                values[s][i] = Double.isNaN(column[i]) ? null : column[i];
+            }
+        }
+
+        ResampleResponse resampleResponse = new ResampleResponse();
+        resampleResponse.setStep(step.name().toLowerCase(Locale.ROOT));
+        resampleResponse.setFill(fill.name().toLowerCase(Locale.ROOT));
+        resampleResponse.setAgg(aggregation.name().toLowerCase(Locale.ROOT));
+        resampleResponse.setIndicatorIds(indicators.stream().map(IndicatorHeader::getId).collect(Collectors.toList()));
+        resampleResponse.setDates(dates);
+        resampleResponse.setValues(values);
+        return resampleResponse;
+    }
+
+    static <E extends Enum<E>> E parseEnum(Class<E> type, String parameter, String name) {
+        try {
+            return Enum.valueOf(type, name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(parameter + " must be one of " + Arrays.toString(type.getEnumConstants()), e);
+        }
+    }
+
+    private void validateWindow(int window) {
+        if (window < 1) {
+            throw new BadRequestException("Window must not be less than 1");
+        }
+
+        if (window > AppConstants.MAX_OPERATOR_WINDOW) {
+            throw new BadRequestException("Window must not be greater than " + AppConstants.MAX_OPERATOR_WINDOW);
+        }
+    }
+
+    static LocalDate lowerBound(LocalDate from) {
+        return from == null ? MIN_DATE : from;
+    }
+
+    static LocalDate upperBound(LocalDate to) {
+        return to == null ? MAX_DATE : to;
+    }
+
+    static void validateRange(LocalDate from, LocalDate to) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new BadRequestException("Range start must not be after range end.");
+        }
+    }
+
+    private void validatePoints(int points) {
+        if (points < AppConstants.MIN_SERIES_POINTS) {
+            throw new BadRequestException("Points number must not be less than " + AppConstants.MIN_SERIES_POINTS);
+        }
+
+        if (points > AppConstants.MAX_SERIES_POINTS) {
+            throw new BadRequestException("Points number must not be greater than " + AppConstants.MAX_SERIES_POINTS);
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package top.valiev.grafeo.service.series;
+
+import top.valiev.grafeo.model.series.PointConsumer;
+import top.valiev.grafeo.model.series.SeriesBuilder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * Reads {@code date,value} lines of a CSV file. The file is memory-mapped, split at line
+ * boundaries and the segments are parsed in parallel straight from the mapped bytes.
+ * Points are passed on in file order, they are neither sorted nor deduplicated.
+ * Dates are ISO {@code yyyy-MM-dd}, the separator may be a comma, a semicolon or a tab,
+ * fields may be quoted, a first line that does not start with a date is taken as a header.
+ */
+public final class CsvSeriesReader {
+
+    public static final String MEDIA_TYPE = "text/csv";
+
+    private static final int MIN_SEGMENT_BYTES = 1 << 20;
+    private static final long MAX_SEGMENT_BYTES = 1 << 24;
+    private static final int PROGRESS_LINES = 1 << 16;
+    private static final int NO_DATE = Integer.MIN_VALUE;
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    private CsvSeriesReader() {
+    }
+
+    /**
+     * @return true for {@code text/csv} and {@code application/csv}, parameters such as the charset are ignored
+     */
+    public static boolean isCsv(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        int parameters = contentType.indexOf(';');
+        String type = (parameters < 0 ? contentType : contentType.substring(0, parameters)).trim();
+        return MEDIA_TYPE.equalsIgnoreCase(type) || "application/csv".equalsIgnoreCase(type);
+    }
+
+    /**
+     * Parses as many segments in parallel as there are processors, then passes their points to the
+     * consumer on the calling thread in file order, so only one wave of segments is held in memory.
+     *
+     * @param progress receives the number of lines read so far, possibly from several threads
+     * @throws IllegalArgumentException on a line that is not a date and a number
+     */
+    public static void read(Path file, PointConsumer consumer, LongConsumer progress) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            AtomicLong lines = new AtomicLong();
+            List<Segment> segments = split(channel);
+            int wave = Runtime.getRuntime().availableProcessors();
+            for (int from = 0; from < segments.size(); from += wave) {
+                List<SeriesBuilder> parsed = segments.subList(from, Math.min(from + wave, segments.size())).parallelStream()
+                        .map(segment -> segment.parse(lines, progress))
+                        .collect(Collectors.toList());
+                for (SeriesBuilder points : parsed) {
+                    points.forEach(consumer);
+                }
+            }
+            progress.accept(lines.get());
+        }
+    }
+
+    private static List<Segment> split(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int processors = Runtime.getRuntime().availableProcessors();
+        long count = Math.max(Math.min(processors, size / MIN_SEGMENT_BYTES), (size + MAX_SEGMENT_BYTES - 1) / MAX_SEGMENT_BYTES);
+        count = Math.max(count, 1);
+
+        List<Segment> segments = new ArrayList<>();
+        long start = 0;
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        for (long i = 1; i <= count && start < size; i++) {
+            long end = i == count ? size : nextLineStart(channel, size * i / count, size, probe);
+            if (end > start) {
+                segments.add(new Segment(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start), start));
+                start = end;
+            }
+        }
+        return segments;
+    }
+
+    private static long nextLineStart(FileChannel channel, long position, long size, ByteBuffer probe) throws IOException {
+        while (position < size) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private static final class Segment {
+
+        private final MappedByteBuffer buffer;
+        private final long offset;
+
+        Segment(MappedByteBuffer buffer, long offset) {
+            this.buffer = buffer;
+            this.offset = offset;
+        }
+
+        SeriesBuilder parse(AtomicLong lines, LongConsumer progress) {
+            SeriesBuilder builder = new SeriesBuilder();
+            int limit = buffer.limit();
+            int position = offset == 0 ? skipByteOrderMark() : 0;
+            int first = position;
+            int count = 0;
+            while (position < limit) {
+                int lineEnd = position;
+                while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                    lineEnd++;
+                }
+                int end = lineEnd > position && buffer.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+                boolean header = offset == 0 && position == first;
+                if (end > position && !parseLine(builder, position, end) && !header) {
+                    throw invalidLine(position);
+                }
+                position = lineEnd + 1;
+                if (++count % PROGRESS_LINES == 0) {
+                    progress.accept(lines.addAndGet(PROGRESS_LINES));
+                }
+            }
+            lines.addAndGet(count % PROGRESS_LINES);
+            return builder;
+        }
+
+        private int skipByteOrderMark() {
+            return buffer.limit() >= 3 && buffer.get(0) == (byte) 0xEF && buffer.get(1) == (byte) 0xBB && buffer.get(2) == (byte) 0xBF ? 3 : 0;
+        }
+
+        /**
+         * @return false if the line does not start with a date, which is only allowed for a header
+         */
+        private boolean parseLine(SeriesBuilder builder, int from, int to) {
+            int separator = from;
+            while (separator < to && !isSeparator(buffer.get(separator))) {
+                separator++;
+            }
+            int day = parseDate(trimStart(from, separator), trimEnd(from, separator));
+            if (day == NO_DATE) {
+                return false;
+            }
+            if (separator == to) {
+                throw invalidLine(from);
+            }
+
+            int valueEnd = separator + 1;
+            while (valueEnd < to && !isSeparator(buffer.get(valueEnd))) {
+                valueEnd++;
+            }
+            int valueFrom = trimStart(separator + 1, valueEnd);
+            int valueTo = trimEnd(valueFrom, valueEnd);
+            if (valueFrom == valueTo) {
+                throw invalidLine(from);
+            }
+            try {
+                builder.add(day, parseDouble(valueFrom, valueTo));
+            } catch (NumberFormatException e) {
+                throw invalidLine(from);
+            }
+            return true;
+        }
+
+        private IllegalArgumentException invalidLine(int position) {
+            return new IllegalArgumentException("Invalid CSV line at byte " + (offset + position));
+        }
+
+        private int parseDate(int from, int to) {
+            if (to - from != 10 || buffer.get(from + 4) != '-' || buffer.get(from + 7) != '-') {
+                return NO_DATE;
+            }
+            int year = digits(from, from + 4);
+            int month = digits(from + 5, from + 7);
+            int day = digits(from + 8, from + 10);
+            if (year < 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) {
+                return NO_DATE;
+            }
+            return epochDay(year, month, day);
+        }
+
+        private int digits(int from, int to) {
+            int result = 0;
+            for (int i = from; i < to; i++) {
+                int digit = buffer.get(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    return -1;
+                }
+                result = result * 10 + digit;
+            }
+            return result;
+        }
+
+        /**
+         * Exact for up to 15 significant digits and powers of ten up to 22, other numbers go through {@link Double#parseDouble}.
+         */
+        private double parseDouble(int from, int to) {
+            int i = from;
+            boolean negative = buffer.get(i) == '-';
+            if (negative || buffer.get(i) == '+') {
+                i++;
+            }
+            long mantissa = 0;
+            int significant = 0;
+            int exponent = 0;
+            boolean fraction = false;
+            boolean anyDigit = false;
+            for (; i < to; i++) {
+                byte b = buffer.get(i);
+                if (b >= '0' && b <= '9') {
+                    anyDigit = true;
+                    if (mantissa != 0 || b != '0') {
+                        if (++significant > 15) {
+                            return parseDoubleSlow(from, to);
+                        }
+                        mantissa = mantissa * 10 + (b - '0');
+                    }
+                    if (fraction) {
+                        exponent--;
+                    }
+                } else if (b == '.' && !fraction) {
+                    fraction = true;
+                } else if ((b == 'e' || b == 'E') && anyDigit) {
+                    int exponentValue = parseExponent(i + 1, to);
+                    if (exponentValue == Integer.MIN_VALUE) {
+                        return parseDoubleSlow(from, to);
+                    }
+                    exponent += exponentValue;
+                    i = to;
+                    break;
+                } else {
+                    return parseDoubleSlow(from, to);
+                }
+            }
+            if (!anyDigit || Math.abs(exponent) > 22) {
+                return parseDoubleSlow(from, to);
+            }
+            double value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+            return negative ? -value : value;
+        }
+
+        private int parseExponent(int from, int to) {
+            int i = from;
+            boolean negative = i < to && buffer.get(i) == '-';
+            if (i < to && (negative || buffer.get(i) == '+')) {
+                i++;
+            }
+            if (i == to || to - i > 3) {
+                return Integer.MIN_VALUE;
+            }
+            int value = digits(i, to);
+            return value < 0 ? Integer.MIN_VALUE : negative ? -value : value;
+        }
+
+        /**
+         * Only plain decimals reach {@link Double#parseDouble}, it would also take NaN, Infinity, hex and d/f suffixes.
+         *
+         * @throws NumberFormatException on other syntax or a value that is not finite
+         */
+        private double parseDoubleSlow(int from, int to) {
+            if (!isDecimal(from, to)) {
+                throw new NumberFormatException("Not a decimal number");
+            }
+            byte[] bytes = new byte[to - from];
+            for (int i = from; i < to; i++) {
+                bytes[i - from] = buffer.get(i);
+            }
+            double value = Double.parseDouble(new String(bytes, StandardCharsets.US_ASCII));
+            if (!Double.isFinite(value)) {
+                throw new NumberFormatException("Value is not a finite number");
+            }
+            return value;
+        }
+
+        private boolean isDecimal(int from, int to) {
+            int i = skipSign(from, to);
+            boolean anyDigit = false;
+            boolean fraction = false;
+            for (; i < to; i++) {
+                byte b = buffer.get(i);
+                if (b >= '0' && b <= '9') {
+                    anyDigit = true;
+                } else if (b == '.' && !fraction) {
+                    fraction = true;
+                } else {
+                    break;
+                }
+            }
+            if (!anyDigit) {
+                return false;
+            }
+            if (i == to) {
+                return true;
+            }
+            if (buffer.get(i) != 'e' && buffer.get(i) != 'E') {
+                return false;
+            }
+            i = skipSign(i + 1, to);
+            if (i == to) {
+                return false;
+            }
+            for (; i < to; i++) {
+                if (buffer.get(i) < '0' || buffer.get(i) > '9') {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int skipSign(int from, int to) {
+            return from < to && (buffer.get(from) == '-' || buffer.get(from) == '+') ? from + 1 : from;
+        }
+
+        private int trimStart(int from, int to) {
+            while (from < to && isBlankOrQuote(buffer.get(from))) {
+                from++;
+            }
+            return from;
+        }
+
+        private int trimEnd(int from, int to) {
+            while (to > from && isBlankOrQuote(buffer.get(to - 1))) {
+                to--;
+            }
+            return to;
+        }
+    }
+
+    private static boolean isSeparator(byte b) {
+        return b == ',' || b == ';' || b == '\t';
+    }
+
+    private static boolean isBlankOrQuote(byte b) {
+        return b == ' ' || b == '"';
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        if (month == 2) {
+            return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0 ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    /**
+     * Days from civil, valid for the proleptic Gregorian calendar like {@link java.time.LocalDate#toEpochDay()}.
+     */
+    private static int epochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+}
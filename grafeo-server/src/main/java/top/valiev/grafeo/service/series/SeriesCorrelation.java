@@ -0,0 +1,160 @@
+package top.valiev.grafeo.service.series;
+
+import top.valiev.grafeo.model.series.Series;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Correlation of series aligned by a merge-join on their days, only days present in
+ * both series take part. Results are {@link Double#NaN} when fewer than
+ * {@link #MIN_OVERLAP} days are shared or one of the aligned series is constant.
+ */
+public final class SeriesCorrelation {
+
+    public static final int MIN_OVERLAP = 3;
+
+    public enum Method {
+        PEARSON,
+        SPEARMAN
+    }
+
+    private SeriesCorrelation() {
+    }
+
+    /**
+     * Computes the symmetric matrix, the pairs are spread over the common fork-join pool.
+     */
+    public static double[][] matrix(List<Series> series, Method method) {
+        int n = series.size();
+        double[][] matrix = new double[n][n];
+        IntStream.range(0, n * n).parallel()
+                .filter(pair -> pair / n < pair % n)
+                .forEach(pair -> {
+                    int i = pair / n;
+                    int j = pair % n;
+                    double value = method == Method.PEARSON
+                            ? pearson(series.get(i), series.get(j))
+                            : spearman(series.get(i), series.get(j));
+                    matrix[i][j] = value;
+                    matrix[j][i] = value;
+                });
+        for (int i = 0; i < n; i++) {
+            matrix[i][i] = 1.0;
+        }
+        return matrix;
+    }
+
+    /**
+     * One pass over the joined days with running co-moments.
+     */
+    public static double pearson(Series a, Series b) {
+        int count = 0;
+        double meanX = 0;
+        double meanY = 0;
+        double squaresX = 0;
+        double squaresY = 0;
+        double coMoment = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.size() && j < b.size()) {
+            int dayA = a.dayAt(i);
+            int dayB = b.dayAt(j);
+            if (dayA < dayB) {
+                i++;
+            } else if (dayA > dayB) {
+                j++;
+            } else {
+                double x = a.valueAt(i++);
+                double y = b.valueAt(j++);
+                count++;
+                double deltaX = x - meanX;
+                meanX += deltaX / count;
+                double deltaY = y - meanY;
+                meanY += deltaY / count;
+                squaresX += deltaX * (x - meanX);
+                squaresY += deltaY * (y - meanY);
+                coMoment += deltaX * (y - meanY);
+            }
+        }
+        return correlation(count, squaresX, squaresY, coMoment);
+    }
+
+    /**
+     * Pearson correlation of the ranks, ties get the average of their ranks.
+     */
+    public static double spearman(Series a, Series b) {
+        int capacity = Math.min(a.size(), b.size());
+        double[] x = new double[capacity];
+        double[] y = new double[capacity];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.size() && j < b.size()) {
+            int dayA = a.dayAt(i);
+            int dayB = b.dayAt(j);
+            if (dayA < dayB) {
+                i++;
+            } else if (dayA > dayB) {
+                j++;
+            } else {
+                x[count] = a.valueAt(i++);
+                y[count] = b.valueAt(j++);
+                count++;
+            }
+        }
+        if (count < MIN_OVERLAP) {
+            return Double.NaN;
+        }
+        rank(x, count);
+        rank(y, count);
+
+        double mean = (count + 1) / 2.0;
+        double squaresX = 0;
+        double squaresY = 0;
+        double coMoment = 0;
+        for (int k = 0; k < count; k++) {
+            double deltaX = x[k] - mean;
+            double deltaY = y[k] - mean;
+            squaresX += deltaX * deltaX;
+            squaresY += deltaY * deltaY;
+            coMoment += deltaX * deltaY;
+        }
+        return correlation(count, squaresX, squaresY, coMoment);
+    }
+
+    private static void rank(double[] values, int count) {
+        double[] sorted = Arrays.copyOf(values, count);
+        Arrays.sort(sorted);
+        for (int k = 0; k < count; k++) {
+            int first = searchFirst(sorted, values[k], false);
+            int last = searchFirst(sorted, values[k], true) - 1;
+            values[k] = (first + last) / 2.0 + 1;
+        }
+    }
+
+    /**
+     * @return index of the first element not less than the value, or greater than it if {@code after}
+     */
+    private static int searchFirst(double[] sorted, double value, boolean after) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] < value || (after && sorted[middle] == value)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static double correlation(int count, double squaresX, double squaresY, double coMoment) {
+        if (count < MIN_OVERLAP || squaresX == 0 || squaresY == 0) {
+            return Double.NaN;
+        }
+        return Math.max(-1.0, Math.min(1.0, coMoment / Math.sqrt(squaresX * squaresY)));
+    }
+}
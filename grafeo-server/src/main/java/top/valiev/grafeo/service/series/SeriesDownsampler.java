@@ -0,0 +1,62 @@
+package top.valiev.grafeo.service.series;
+
+import top.valiev.grafeo.model.series.Series;
+
+public final class SeriesDownsampler {
+
+    private SeriesDownsampler() {
+    }
+
+    /**
+     * Largest-Triangle-Three-Buckets downsampling. Keeps the first and the last point
+     * and picks from every bucket the point forming the largest triangle with the
+     * previously selected point and the average of the next bucket.
+     */
+    public static Series lttb(Series series, int threshold) {
+        int size = series.size();
+        if (threshold >= size || threshold < 3) {
+            return series;
+        }
+
+        Series sampled = new Series(threshold);
+        sampled.append(series.dayAt(0), series.valueAt(0));
+
+        double bucketSize = (double) (size - 2) / (threshold - 2);
+        int selected = 0;
+        int rangeStart = 1;
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            int rangeEnd = (int) ((bucket + 1) * bucketSize) + 1;
+            int nextEnd = Math.min((int) ((bucket + 2) * bucketSize) + 1, size);
+
+            double averageDay = 0;
+            double averageValue = 0;
+            for (int i = rangeEnd; i < nextEnd; i++) {
+                averageDay += series.dayAt(i);
+                averageValue += series.valueAt(i);
+            }
+            int nextLength = nextEnd - rangeEnd;
+            averageDay /= nextLength;
+            averageValue /= nextLength;
+
+            double selectedDay = series.dayAt(selected);
+            double selectedValue = series.valueAt(selected);
+            double maxArea = -1;
+            int next = rangeStart;
+            for (int i = rangeStart; i < rangeEnd; i++) {
+                double area = Math.abs((selectedDay - averageDay) * (series.valueAt(i) - selectedValue)
+                        - (selectedDay - series.dayAt(i)) * (averageValue - selectedValue));
+                if (area > maxArea) {
+                    maxArea = area;
+                    next = i;
+                }
+            }
+
+            sampled.append(series.dayAt(next), series.valueAt(next));
+            selected = next;
+            rangeStart = rangeEnd;
+        }
+
+        sampled.append(series.lastDay(), series.valueAt(size - 1));
+        return sampled;
+    }
+}
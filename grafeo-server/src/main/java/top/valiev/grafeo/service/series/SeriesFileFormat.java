@@ -0,0 +1,161 @@
+package top.valiev.grafeo.service.series;
+
+import top.valiev.grafeo.model.series.PointConsumer;
+import top.valiev.grafeo.model.series.Series;
+import top.valiev.grafeo.model.series.SeriesCodec;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Versioned binary file of an indicator: magic, version, name and unit, then blocks of
+ * {@link SeriesCodec} encoded points terminated by an empty block, then a CRC32 of all preceding bytes.
+ */
+public final class SeriesFileFormat {
+
+    public static final String MEDIA_TYPE = "application/vnd.grafeo.series";
+
+    private static final byte[] MAGIC = {'G', 'R', 'F', 'S'};
+    private static final int VERSION = 1;
+    private static final int BLOCK_POINTS = 4096;
+    private static final int MAX_BLOCK_LENGTH = 1 << 20;
+
+    private SeriesFileFormat() {
+    }
+
+    /**
+     * Writes points in date order one block at a time.
+     */
+    public static class Writer {
+
+        private final BufferedOutputStream buffered;
+        private final CRC32 checksum = new CRC32();
+        private final DataOutputStream output;
+        private final Series block = new Series(BLOCK_POINTS);
+
+        public Writer(OutputStream output, String name, String unit) throws IOException {
+            this.buffered = new BufferedOutputStream(output);
+            this.output = new DataOutputStream(new CheckedOutputStream(buffered, checksum));
+            this.output.write(MAGIC);
+            this.output.writeByte(VERSION);
+            writeNullableString(name);
+            writeNullableString(unit);
+        }
+
+        public void append(int day, double value) throws IOException {
+            block.append(day, value);
+            if (block.size() == BLOCK_POINTS) {
+                writeBlock();
+            }
+        }
+
+        public void finish() throws IOException {
+            writeBlock();
+            output.writeInt(0);
+            output.flush();
+            new DataOutputStream(buffered).writeInt((int) checksum.getValue());
+            buffered.flush();
+        }
+
+        private void writeBlock() throws IOException {
+            if (block.isEmpty()) {
+                return;
+            }
+            byte[] data = SeriesCodec.encode(block);
+            output.writeInt(data.length);
+            output.write(data);
+            block.clear();
+        }
+
+        private void writeNullableString(String value) throws IOException {
+            output.writeBoolean(value != null);
+            if (value != null) {
+                output.writeUTF(value);
+            }
+        }
+    }
+
+    /**
+     * Reads the header on creation, then streams the points of the blocks.
+     */
+    public static class Reader {
+
+        private final BufferedInputStream buffered;
+        private final CRC32 checksum = new CRC32();
+        private final DataInputStream input;
+        private final String name;
+        private final String unit;
+
+        public Reader(InputStream input) throws IOException {
+            this.buffered = new BufferedInputStream(input);
+            this.input = new DataInputStream(new CheckedInputStream(buffered, checksum));
+            byte[] magic = new byte[MAGIC.length];
+            this.input.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IllegalArgumentException("Not a series file");
+            }
+            int version = this.input.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported series file version: " + version);
+            }
+            this.name = readNullableString();
+            this.unit = readNullableString();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getUnit() {
+            return unit;
+        }
+
+        /**
+         * Passes the points block by block as they are decoded. The checksum is only checked after
+         * the last block, a caller that already used the points has to undo that when it fails.
+         *
+         * @param progress receives the number of points read after every block
+         * @throws IllegalArgumentException on a corrupted block or checksum, or a value that is not finite
+         */
+        public void readRecords(PointConsumer consumer, LongConsumer progress) throws IOException {
+            long read = 0;
+            for (int length = input.readInt(); length != 0; length = input.readInt()) {
+                if (length < 0 || length > MAX_BLOCK_LENGTH) {
+                    throw new IllegalArgumentException("Invalid block length: " + length);
+                }
+                byte[] data = new byte[length];
+                input.readFully(data);
+                Series block = SeriesCodec.decode(data, BLOCK_POINTS);
+                if (block.isEmpty()) {
+                    throw new IllegalArgumentException("Empty block before the end of the series");
+                }
+                for (int i = 0; i < block.size(); i++) {
+                    if (!Double.isFinite(block.valueAt(i))) {
+                        throw new IllegalArgumentException("Value is not a finite number: " + block.valueAt(i));
+                    }
+                    consumer.accept(block.dayAt(i), block.valueAt(i));
+                }
+                read += block.size();
+                progress.accept(read);
+            }
+            int expected = (int) checksum.getValue();
+            if (new DataInputStream(buffered).readInt() != expected) {
+                throw new IllegalArgumentException("Series file checksum mismatch");
+            }
+        }
+
+        private String readNullableString() throws IOException {
+            return input.readBoolean() ? input.readUTF() : null;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package top.valiev.grafeo.service.series;
+
+import top.valiev.grafeo.model.series.Series;
+
+/**
+ * Projection of a series with 95% prediction bands. Points are projected every {@code step}
+ * days after the last one, the step being the average spacing of the history, until the horizon
+ * is covered.
+ */
+public final class SeriesForecast {
+
+    public static final int MIN_POINTS = 3;
+    public static final double LEVEL = 0.95;
+
+    private static final double Z = 1.959964;
+    private static final int GRID_SIZE = 20;
+    private static final double GRID_STEP = 1.0 / GRID_SIZE;
+
+    public enum Model {
+        /**
+         * Least squares trend line over the whole history.
+         */
+        LINEAR,
+        /**
+         * Holt's linear exponential smoothing, level and trend weights are fitted by a grid
+         * search over the one-step-ahead errors.
+         */
+        HOLT
+    }
+
+    private final int step;
+    private final int[] days;
+    private final double[] values;
+    private final double[] lower;
+    private final double[] upper;
+
+    private SeriesForecast(int step, int points) {
+        this.step = step;
+        this.days = new int[points];
+        this.values = new double[points];
+        this.lower = new double[points];
+        this.upper = new double[points];
+    }
+
+    /**
+     * @return forecast without points if the series has fewer than {@link #MIN_POINTS} points
+     */
+    public static SeriesForecast fit(Series series, Model model, int horizon) {
+        int size = series.size();
+        if (size < MIN_POINTS) {
+            return new SeriesForecast(1, 0);
+        }
+        int step = Math.max(1, Math.round((float) (series.lastDay() - series.firstDay()) / (size - 1)));
+        // round up so a horizon shorter than the step still gets one point
+        SeriesForecast forecast = new SeriesForecast(step, (horizon + step - 1) / step);
+        if (model == Model.LINEAR) {
+            forecast.fitLinear(series);
+        } else {
+            forecast.fitHolt(series);
+        }
+        return forecast;
+    }
+
+    private void fitLinear(Series series) {
+        int size = series.size();
+        int origin = series.firstDay();
+        double meanX = 0;
+        double meanY = 0;
+        double squaresX = 0;
+        double squaresY = 0;
+        double coMoment = 0;
+        for (int i = 0; i < size; i++) {
+            double x = series.dayAt(i) - origin;
+            double y = series.valueAt(i);
+            double deltaX = x - meanX;
+            meanX += deltaX / (i + 1);
+            double deltaY = y - meanY;
+            meanY += deltaY / (i + 1);
+            squaresX += deltaX * (x - meanX);
+            squaresY += deltaY * (y - meanY);
+            coMoment += deltaX * (y - meanY);
+        }
+        double slope = coMoment / squaresX;
+        double intercept = meanY - slope * meanX;
+        double error = Math.sqrt(Math.max(0, squaresY - slope * coMoment) / (size - 2));
+
+        for (int k = 0; k < days.length; k++) {
+            days[k] = series.lastDay() + step * (k + 1);
+            double x = days[k] - origin;
+            double margin = Z * error * Math.sqrt(1 + 1.0 / size + (x - meanX) * (x - meanX) / squaresX);
+            set(k, intercept + slope * x, margin);
+        }
+    }
+
+    private void fitHolt(Series series) {
+        double bestAlpha = GRID_STEP;
+        double bestBeta = GRID_STEP;
+        double bestErrors = Double.POSITIVE_INFINITY;
+        for (int a = 1; a < GRID_SIZE; a++) {
+            for (int b = 1; b < GRID_SIZE; b++) {
+                double alpha = a * GRID_STEP;
+                double beta = b * GRID_STEP;
+                double errors = holtErrors(series, alpha, beta, null);
+                if (errors < bestErrors) {
+                    bestErrors = errors;
+                    bestAlpha = alpha;
+                    bestBeta = beta;
+                }
+            }
+        }
+
+        double[] state = new double[2];
+        holtErrors(series, bestAlpha, bestBeta, state);
+        double variance = bestErrors / Math.max(1, series.size() - 3);
+        double spread = 1;
+        for (int k = 0; k < days.length; k++) {
+            int h = k + 1;
+            days[k] = series.lastDay() + step * h;
+            if (h > 1) {
+                double weight = bestAlpha * (1 + (h - 1) * bestBeta);
+                spread += weight * weight;
+            }
+            set(k, state[0] + h * state[1], Z * Math.sqrt(variance * spread));
+        }
+    }
+
+    /**
+     * @param state receives the final level and trend if not null
+     * @return sum of squared one-step-ahead errors
+     */
+    private static double holtErrors(Series series, double alpha, double beta, double[] state) {
+        double level = series.valueAt(0);
+        double trend = series.valueAt(1) - series.valueAt(0);
+        double errors = 0;
+        for (int i = 1; i < series.size(); i++) {
+            double value = series.valueAt(i);
+            double error = value - (level + trend);
+            errors += error * error;
+            double previousLevel = level;
+            level = alpha * value + (1 - alpha) * (level + trend);
+            trend = beta * (level - previousLevel) + (1 - beta) * trend;
+        }
+        if (state != null) {
+            state[0] = level;
+            state[1] = trend;
+        }
+        return errors;
+    }
+
+    private void set(int index, double value, double margin) {
+        values[index] = value;
+        lower[index] = value - margin;
+        upper[index] = value + margin;
+    }
+
+    public int getStep() {
+        return step;
+    }
+
+    public int size() {
+        return days.length;
+    }
+
+    public int dayAt(int index) {
+        return days[index];
+    }
+
+    public double valueAt(int index) {
+        return values[index];
+    }
+
+    public double lowerAt(int index) {
+        return lower[index];
+    }
+
+    public double upperAt(int index) {
+        return upper[index];
+    }
+}
@@ -0,0 +1,89 @@
+package top.valiev.grafeo.service.series;
+
+import top.valiev.grafeo.model.series.Series;
+
+/**
+ * Single-pass operators over a sorted series. The window counts points, not days, and
+ * points without a full window behind them are left out of the result.
+ */
+public enum SeriesOperator {
+    /**
+     * Simple moving average of the last {@code window} points.
+     */
+    SMA,
+    /**
+     * Exponential moving average with {@code alpha = 2 / (window + 1)}, seeded with the simple average of the first window.
+     */
+    EMA,
+    /**
+     * Rate of change in percent against the value {@code window} points back, skipped where that value is zero.
+     */
+    ROC,
+    /**
+     * Running total, the window is ignored.
+     */
+    CUMSUM,
+    /**
+     * Difference with the value {@code window} points back.
+     */
+    DIFF;
+
+    public Series apply(Series series, int window) {
+        int size = series.size();
+        Series result = new Series(size);
+        switch (this) {
+            case SMA:
+                double sum = 0;
+                for (int i = 0; i < size; i++) {
+                    sum += series.valueAt(i);
+                    if (i >= window) {
+                        sum -= series.valueAt(i - window);
+                    }
+                    if (i >= window - 1) {
+                        result.append(series.dayAt(i), sum / window);
+                    }
+                }
+                return result;
+            case EMA:
+                double alpha = 2.0 / (window + 1);
+                // holds the sum of the first window until it becomes their average
+                double average = 0;
+                for (int i = 0; i < size; i++) {
+                    if (i < window) {
+                        average += series.valueAt(i);
+                        if (i == window - 1) {
+                            average /= window;
+                        }
+                    } else {
+                        average += alpha * (series.valueAt(i) - average);
+                    }
+                    if (i >= window - 1) {
+                        result.append(series.dayAt(i), average);
+                    }
+                }
+                return result;
+            case ROC:
+                for (int i = window; i < size; i++) {
+                    double base = series.valueAt(i - window);
+                    if (base != 0) {
+                        result.append(series.dayAt(i), (series.valueAt(i) - base) / Math.abs(base) * 100);
+                    }
+                }
+                return result;
+            case CUMSUM:
+                double total = 0;
+                for (int i = 0; i < size; i++) {
+                    total += series.valueAt(i);
+                    result.append(series.dayAt(i), total);
+                }
+                return result;
+            case DIFF:
+                for (int i = window; i < size; i++) {
+                    result.append(series.dayAt(i), series.valueAt(i) - series.valueAt(i - window));
+                }
+                return result;
+            default:
+                throw new IllegalStateException("Unknown operator " + this);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package top.valiev.grafeo.service.series;
+
+import top.valiev.grafeo.model.RollupBucket;
+import top.valiev.grafeo.model.series.Series;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Aligns several series onto one calendar grid. The inputs are read once in day order by a
+ * k-way merge over a heap of cursors, every bucket from the first to the last one with data
+ * is emitted and empty buckets are {@link Double#NaN} unless filled.
+ */
+public final class SeriesResampler {
+
+    public enum Aggregation {
+        LAST,
+        AVG,
+        SUM
+    }
+
+    public enum Fill {
+        /**
+         * Empty buckets stay empty.
+         */
+        NONE,
+        /**
+         * Empty buckets repeat the last value before them.
+         */
+        PREVIOUS,
+        /**
+         * Empty buckets between two values are interpolated by bucket position, leading and trailing ones stay empty.
+         */
+        LINEAR
+    }
+
+    private final RollupBucket step;
+    private final Aggregation aggregation;
+    private final int maxBuckets;
+    private final List<Series> series;
+
+    private final int[] positions;
+    private final int[] heap;
+    private int heapSize;
+
+    private final double[] sums;
+    private final double[] lasts;
+    private final int[] counts;
+
+    private int[] days = new int[16];
+    private double[][] values;
+    private int size;
+
+    private SeriesResampler(List<Series> series, RollupBucket step, Aggregation aggregation, int maxBuckets) {
+        this.series = series;
+        this.step = step;
+        this.aggregation = aggregation;
+        this.maxBuckets = maxBuckets;
+        int k = series.size();
+        this.positions = new int[k];
+        this.heap = new int[k];
+        this.sums = new double[k];
+        this.lasts = new double[k];
+        this.counts = new int[k];
+        this.values = new double[k][days.length];
+    }
+
+    /**
+     * @return grid of bucket start days with the values of every input series, see {@link #valuesOf(int)}
+     * @throws IllegalArgumentException if the grid would have more than {@code maxBuckets} buckets
+     */
+    public static SeriesResampler resample(List<Series> series, RollupBucket step, Aggregation aggregation, Fill fill, int maxBuckets) {
+        SeriesResampler resampler = new SeriesResampler(series, step, aggregation, maxBuckets);
+        resampler.merge();
+        for (double[] column : resampler.values) {
+            if (fill == Fill.PREVIOUS) {
+                fillPrevious(column, resampler.size);
+            } else if (fill == Fill.LINEAR) {
+                fillLinear(column, resampler.size);
+            }
+        }
+        return resampler;
+    }
+
+    private void merge() {
+        for (int s = 0; s < series.size(); s++) {
+            if (!series.get(s).isEmpty()) {
+                heap[heapSize++] = s;
+            }
+        }
+        for (int i = heapSize / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+
+        int bucketEnd = Integer.MIN_VALUE;
+        while (heapSize > 0) {
+            int s = heap[0];
+            Series current = series.get(s);
+            int day = current.dayAt(positions[s]);
+            if (day >= bucketEnd) {
+                if (size > 0) {
+                    flush();
+                }
+                int bucketStart = (int) step.start(LocalDate.ofEpochDay(day)).toEpochDay();
+                while (size > 0 && bucketEnd < bucketStart) {
+                    // empty buckets between two with data
+                    openBucket(bucketEnd);
+                    flush();
+                    bucketEnd = nextDay(bucketEnd);
+                }
+                openBucket(bucketStart);
+                bucketEnd = nextDay(bucketStart);
+            }
+
+            double value = current.valueAt(positions[s]);
+            sums[s] += value;
+            lasts[s] = value;
+            counts[s]++;
+
+            if (++positions[s] == current.size()) {
+                heap[0] = heap[--heapSize];
+            }
+            siftDown(0);
+        }
+        if (size > 0) {
+            flush();
+        }
+    }
+
+    private int nextDay(int bucketStart) {
+        return (int) step.next(LocalDate.ofEpochDay(bucketStart)).toEpochDay();
+    }
+
+    private void openBucket(int bucketStart) {
+        if (size == maxBuckets) {
+            throw new IllegalArgumentException("Resampled series must not have more than " + maxBuckets + " points");
+        }
+        if (size == days.length) {
+            days = Arrays.copyOf(days, size * 2);
+            for (int s = 0; s < values.length; s++) {
+                values[s] = Arrays.copyOf(values[s], size * 2);
+            }
+        }
+        days[size++] = bucketStart;
+    }
+
+    private void flush() {
+        int index = size - 1;
+        for (int s = 0; s < values.length; s++) {
+            if (counts[s] == 0) {
+                values[s][index] = Double.NaN;
+                continue;
+            }
+            switch (aggregation) {
+                case LAST:
+                    values[s][index] = lasts[s];
+                    break;
+                case AVG:
+                    values[s][index] = sums[s] / counts[s];
+                    break;
+                case SUM:
+                    values[s][index] = sums[s];
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown aggregation " + aggregation);
+            }
+            sums[s] = 0;
+            counts[s] = 0;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int smallest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < heapSize && headDay(heap[left]) < headDay(heap[smallest])) {
+                smallest = left;
+            }
+            if (right < heapSize && headDay(heap[right]) < headDay(heap[smallest])) {
+                smallest = right;
+            }
+            if (smallest == index) {
+                return;
+            }
+            int swap = heap[index];
+            heap[index] = heap[smallest];
+            heap[smallest] = swap;
+            index = smallest;
+        }
+    }
+
+    private int headDay(int s) {
+        return series.get(s).dayAt(positions[s]);
+    }
+
+    private static void fillPrevious(double[] column, int size) {
+        for (int i = 1; i < size; i++) {
+            if (Double.isNaN(column[i])) {
+                column[i] = column[i - 1];
+            }
+        }
+    }
+
+    private static void fillLinear(double[] column, int size) {
+        int previous = -1;
+        for (int i = 0; i < size; i++) {
+            if (Double.isNaN(column[i])) {
+                continue;
+            }
+            if (previous >= 0 && i - previous > 1) {
+                double slope = (column[i] - column[previous]) / (i - previous);
+                for (int j = previous + 1; j < i; j++) {
+                    column[j] = column[previous] + slope * (j - previous);
+                }
+            }
+            previous = i;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int dayAt(int index) {
+        return days[index];
+    }
+
+    /**
+     * @return bucket values of the series at the given input position, only the first {@link #size()} are used
+     */
+    public double[] valuesOf(int seriesIndex) {
+        return values[seriesIndex];
+    }
+}
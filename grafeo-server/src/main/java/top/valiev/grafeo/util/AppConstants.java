@@ -6,6 +6,27 @@ public abstract class AppConstants {
 
     public static final int MAX_PAGE_SIZE = 50;
 
+    public static final String DEFAULT_SERIES_POINTS = "500";
+    public static final int MIN_SERIES_POINTS = 3;
+    public static final int MAX_SERIES_POINTS = 5000;
+
+    public static final String DEFAULT_OPERATOR_WINDOW = "1";
+    public static final int MAX_OPERATOR_WINDOW = 10000;
+
+    public static final int MAX_CORRELATION_INDICATORS = 100;
+
+    public static final String DEFAULT_FORECAST_HORIZON = "90";
+    public static final int MAX_FORECAST_HORIZON = 3650;
+
+    public static final String DEFAULT_RECORDS_LIMIT = "1000";
+    public static final int MAX_RECORDS_LIMIT = 10000;
+
+    public static final int MAX_BATCH_RECORDS = 10000;
+    public static final int IMPORT_BATCH_RECORDS = 5000;
+
+    public static final String DEFAULT_SPARKLINE_POINTS = "0";
+    public static final int MAX_SPARKLINE_POINTS = 100;
+
     private AppConstants() {
     }
 }
\ No newline at end of file
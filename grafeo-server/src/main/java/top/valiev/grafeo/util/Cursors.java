@@ -0,0 +1,41 @@
+package top.valiev.grafeo.util;
+
+import top.valiev.grafeo.exeption.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+public final class Cursors {
+
+    private static final String SEPARATOR = ":";
+
+    private Cursors() {
+    }
+
+    /**
+     * Builds an opaque continuation token, only the last part may contain the separator.
+     */
+    public static String encode(Object... parts) {
+        StringBuilder cursor = new StringBuilder();
+        for (Object part : parts) {
+            if (cursor.length() > 0) {
+                cursor.append(SEPARATOR);
+            }
+            cursor.append(part);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String[] decode(String cursor, int parts) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] split = decoded.split(SEPARATOR, parts);
+            if (split.length == parts) {
+                return split;
+            }
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid cursor", e);
+        }
+        throw new BadRequestException("Invalid cursor");
+    }
+}
@@ -0,0 +1,26 @@
+package top.valiev.grafeo.util;
+
+import java.time.Instant;
+import java.util.StringJoiner;
+
+public final class ETags {
+
+    private ETags() {
+    }
+
+    /**
+     * Builds a strong entity tag from the values that identify a response version.
+     */
+    public static String of(Object... parts) {
+        StringJoiner etag = new StringJoiner("-", "\"", "\"");
+        for (Object part : parts) {
+            if (part instanceof Instant) {
+                Instant instant = (Instant) part;
+                etag.add(Long.toHexString(instant.getEpochSecond()) + "." + Integer.toHexString(instant.getNano()));
+            } else {
+                etag.add(String.valueOf(part));
+            }
+        }
+        return etag.toString();
+    }
+}
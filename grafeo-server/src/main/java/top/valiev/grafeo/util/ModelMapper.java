@@ -2,13 +2,22 @@ package top.valiev.grafeo.util;
 
 import org.apache.commons.lang3.StringUtils;
 import top.valiev.grafeo.model.Indicator;
+import top.valiev.grafeo.model.Record;
+import top.valiev.grafeo.model.RecordRollup;
 import top.valiev.grafeo.model.User;
+import top.valiev.grafeo.model.series.Series;
+import top.valiev.grafeo.payload.ImportJobResponse;
 import top.valiev.grafeo.payload.IndicatorResponse;
 import top.valiev.grafeo.payload.RecordResponse;
+import top.valiev.grafeo.payload.RollupResponse;
+import top.valiev.grafeo.payload.SeriesRecordList;
+import top.valiev.grafeo.payload.SeriesResponse;
 import top.valiev.grafeo.payload.UserSummary;
+import top.valiev.grafeo.service.ImportJob;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public class ModelMapper {
 
@@ -22,13 +31,11 @@ public class ModelMapper {
         indicatorResponse.setUnit(indicator.getUnit());
         indicatorResponse.setCreationDateTime(indicator.getCreatedAt());
 
-        List<RecordResponse> recordResponses = indicator.getRecords().stream().map(record -> {
-            RecordResponse recordResponse = new RecordResponse();
-            recordResponse.setId(record.getId());
-            recordResponse.setValue(record.getValue());
-            recordResponse.setDate(record.getDate());
-            return recordResponse;
-        }).sorted().collect(Collectors.toList());
+        // a read-only view, the series is not copied
+        List<RecordResponse> recordResponses = indicator.isChunked()
+                // chunked records have no row id, the epoch day is unique within an indicator
+                ? new SeriesRecordList(indicator.decodeChunks(), null)
+                : mapRecordsToRecordList(indicator.getRecords());
 
         indicatorResponse.setRecords(recordResponses);
 
@@ -38,4 +45,63 @@ public class ModelMapper {
         return indicatorResponse;
     }
 
+    /**
+     * Records come ordered by date and unique per date from the database, so they are appended without sorting.
+     */
+    private static SeriesRecordList mapRecordsToRecordList(List<Record> records) {
+        Series series = new Series(records.size());
+        long[] ids = new long[records.size()];
+        for (int i = 0; i < records.size(); i++) {
+            Record record = records.get(i);
+            series.append((int) record.getDate().toEpochDay(), record.getValue());
+            ids[i] = record.getId();
+        }
+        return new SeriesRecordList(series, ids);
+    }
+
+    public static SeriesResponse mapSeriesToSeriesResponse(Long indicatorId, Series series, int totalPoints) {
+        List<LocalDate> dates = new ArrayList<>(series.size());
+        double[] values = new double[series.size()];
+        for (int i = 0; i < series.size(); i++) {
+            dates.add(series.dateAt(i));
+            values[i] = series.valueAt(i);
+        }
+
+        SeriesResponse seriesResponse = new SeriesResponse();
+        seriesResponse.setIndicatorId(indicatorId);
+        seriesResponse.setTotalPoints(totalPoints);
+        seriesResponse.setDates(dates);
+        seriesResponse.setValues(values);
+        return seriesResponse;
+    }
+
+    public static RollupResponse mapRollupToRollupResponse(RecordRollup rollup) {
+        RollupResponse rollupResponse = new RollupResponse();
+        rollupResponse.setBucketStart(rollup.getBucketStart());
+        rollupResponse.setCount(rollup.getPointCount());
+        rollupResponse.setMin(rollup.getMinValue());
+        rollupResponse.setMax(rollup.getMaxValue());
+        rollupResponse.setSum(rollup.getValueSum());
+        rollupResponse.setFirstDate(rollup.getFirstDate());
+        rollupResponse.setFirst(rollup.getFirstValue());
+        rollupResponse.setLastDate(rollup.getLastDate());
+        rollupResponse.setLast(rollup.getLastValue());
+        return rollupResponse;
+    }
+
+    public static ImportJobResponse mapImportJobToImportJobResponse(ImportJob job) {
+        ImportJobResponse importJobResponse = new ImportJobResponse();
+        importJobResponse.setId(job.getId());
+        importJobResponse.setIndicatorId(job.getIndicatorId());
+        importJobResponse.setStatus(job.getStatus().name());
+        importJobResponse.setRecordsRead(job.getRecordsRead());
+        importJobResponse.setChanged(job.getChanged());
+        importJobResponse.setRecordsPerSecond(job.getRecordsPerSecond());
+        importJobResponse.setError(job.getError());
+        importJobResponse.setSubmittedAt(job.getSubmittedAt());
+        importJobResponse.setStartedAt(job.getStartedAt());
+        importJobResponse.setFinishedAt(job.getFinishedAt());
+        return importJobResponse;
+    }
+
 }
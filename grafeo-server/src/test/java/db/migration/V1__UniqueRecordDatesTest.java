@@ -0,0 +1,65 @@
+package db.migration;
+
+import org.flywaydb.core.api.configuration.Configuration;
+import org.flywaydb.core.api.migration.Context;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class V1__UniqueRecordDatesTest {
+
+    @Test
+    public void collapsesDuplicatesBeforeAddingConstraint() throws Exception {
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:unique_record_dates");
+             Statement statement = connection.createStatement()) {
+            statement.execute("create table records (id bigint primary key, indicator_id bigint not null, " +
+                    "date date not null, value double precision)");
+            statement.execute("insert into records values (1, 1, '2020-01-01', 1.0), (2, 1, '2020-01-01', 2.0), " +
+                    "(3, 1, '2020-01-02', 3.0), (4, 2, '2020-01-01', 4.0), (5, 1, '2020-01-02', 5.0), (6, 1, '2020-01-02', 6.0)");
+
+            migrate(connection);
+            // the constraint is found on a second run and not added again
+            migrate(connection);
+
+            List<Long> ids = new ArrayList<>();
+            try (ResultSet records = statement.executeQuery("select id from records order by id")) {
+                while (records.next()) {
+                    ids.add(records.getLong(1));
+                }
+            }
+            assertEquals(Arrays.asList(2L, 4L, 6L), ids);
+            assertThrows(SQLException.class,
+                    () -> statement.execute("insert into records values (7, 2, '2020-01-01', 7.0)"));
+        }
+    }
+
+    @Test
+    public void skipsDatabaseWithoutRecords() throws Exception {
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:no_records")) {
+            migrate(connection);
+        }
+    }
+
+    private static void migrate(Connection connection) throws SQLException {
+        new V1__UniqueRecordDates().migrate(new Context() {
+            @Override
+            public Configuration getConfiguration() {
+                return null;
+            }
+
+            @Override
+            public Connection getConnection() {
+                return connection;
+            }
+        });
+    }
+}
@@ -0,0 +1,53 @@
+package db.migration;
+
+import org.flywaydb.core.api.configuration.Configuration;
+import org.flywaydb.core.api.migration.Context;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class V2__DropResetVersionTest {
+
+    @Test
+    public void dropsColumnOnce() throws Exception {
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:drop_reset_version");
+             Statement statement = connection.createStatement()) {
+            statement.execute("create table indicators (id bigint primary key, change_version bigint, reset_version bigint)");
+
+            migrate(connection);
+            // nothing left to drop on a second run
+            migrate(connection);
+
+            try (ResultSet columns = connection.getMetaData().getColumns(null, null, "INDICATORS", "RESET_VERSION")) {
+                assertFalse(columns.next());
+            }
+        }
+    }
+
+    @Test
+    public void skipsDatabaseWithoutIndicators() throws Exception {
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:no_indicators")) {
+            migrate(connection);
+        }
+    }
+
+    private static void migrate(Connection connection) throws SQLException {
+        new V2__DropResetVersion().migrate(new Context() {
+            @Override
+            public Configuration getConfiguration() {
+                return null;
+            }
+
+            @Override
+            public Connection getConnection() {
+                return connection;
+            }
+        });
+    }
+}
@@ -2,12 +2,15 @@ package top.valiev.grafeo.controller;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
 import org.junit.jupiter.api.BeforeEach;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.mock.http.MockHttpOutputMessage;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
@@ -16,6 +19,7 @@ import top.valiev.grafeo.model.User;
 import top.valiev.grafeo.payload.IndicatorRequest;
 import top.valiev.grafeo.payload.IndicatorResponse;
 import top.valiev.grafeo.repository.IndicatorRepository;
+import top.valiev.grafeo.repository.RecordRollupRepository;
 import top.valiev.grafeo.repository.RoleRepository;
 import top.valiev.grafeo.repository.UserRepository;
 import top.valiev.grafeo.service.FileService;
@@ -26,10 +30,13 @@ import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.springframework.test.util.AssertionErrors.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -55,6 +62,9 @@ public abstract class AbstractControllerTest {
     @Autowired
     protected IndicatorRepository indicatorRepository;
 
+    @Autowired
+    protected RecordRollupRepository recordRollupRepository;
+
     @Autowired
     protected RoleRepository roleRepository;
 
@@ -92,6 +102,40 @@ public abstract class AbstractControllerTest {
         return mockHttpOutputMessage.getBodyAsString();
     }
 
+    /**
+     * Uploads the values as consecutive days, NaN values are left out of the file.
+     */
+    void uploadValues(long indicatorId, LocalDate firstDate, double[] values) throws Exception {
+        List<Integer> days = new ArrayList<>();
+        for (int day = 0; day < values.length; day++) {
+            if (!Double.isNaN(values[day])) {
+                days.add(day);
+            }
+        }
+        uploadPoints(indicatorId, firstDate, days, values);
+    }
+
+    /**
+     * Uploads the points as a JSON file in the given order, days are offsets from the first date.
+     */
+    void uploadPoints(long indicatorId, LocalDate firstDate, List<Integer> days, double[] values) throws Exception {
+        JsonArray records = new JsonArray();
+        for (int day : days) {
+            JsonObject record = new JsonObject();
+            record.addProperty("value", values[day]);
+            record.addProperty("date", firstDate.plusDays(day).toString());
+            records.add(record);
+        }
+        JsonObject content = new JsonObject();
+        content.add("records", records);
+
+        MockMultipartFile jsonFile = new MockMultipartFile("file", "Values.json", "multipart/form-data",
+                gson.toJson(content).getBytes(StandardCharsets.UTF_8));
+        mockMvc.perform(multipart(API_INDICATOR_PREFIX + "/" + indicatorId + "/upload")
+                .file(jsonFile))
+                .andExpect(status().isOk());
+    }
+
     public IndicatorResponse submitNewIndicator(String testName, String testUnit, User user) throws Exception {
         IndicatorRequest indicatorRequest = new IndicatorRequest();
         indicatorRequest.setId(user.getId());
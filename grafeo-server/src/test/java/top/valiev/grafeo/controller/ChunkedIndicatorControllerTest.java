@@ -0,0 +1,400 @@
+package top.valiev.grafeo.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MvcResult;
+import top.valiev.grafeo.Application;
+import top.valiev.grafeo.model.Indicator;
+import top.valiev.grafeo.model.User;
+import top.valiev.grafeo.model.series.Series;
+import top.valiev.grafeo.payload.IndicatorResponse;
+import top.valiev.grafeo.payload.LoginRequest;
+import top.valiev.grafeo.payload.RecordBatchRequest;
+import top.valiev.grafeo.payload.RecordRequest;
+import top.valiev.grafeo.payload.RecordValueRequest;
+import top.valiev.grafeo.repository.IndicatorHeader;
+import top.valiev.grafeo.service.RecordService;
+import top.valiev.grafeo.util.AppConstants;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(classes = Application.class)
+@WebAppConfiguration
+@TestPropertySource(properties = {
+        "environment=test",
+        "app.records.storage=CHUNKED",
+})
+public class ChunkedIndicatorControllerTest extends AbstractControllerTest {
+
+    private static final String TEST_EMAIL = "chunked_test@grafeo.pro";
+    private static final String TEST_PASSWORD = "123456";
+
+    @Autowired
+    private RecordService recordService;
+
+    @BeforeEach
+    public void signin() throws Exception {
+        if (!userRepository.findByEmail(TEST_EMAIL).isPresent()) {
+            userService.createUser(TEST_EMAIL, TEST_EMAIL, TEST_EMAIL, TEST_PASSWORD);
+        }
+
+        LoginRequest loginRequest = new LoginRequest();
+        loginRequest.setUsernameOrEmail(TEST_EMAIL);
+        loginRequest.setPassword(TEST_PASSWORD);
+
+        mockMvc.perform(post(AuthControllerTest.API_AUTH_PREFIX + "/signin")
+                .content(json(loginRequest))
+                .contentType(contentType))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void addAndDeleteRecords() throws Exception {
+        Optional<User> user = userRepository.findByEmail(TEST_EMAIL);
+        assertTrue(user.isPresent());
+        long indicatorId = submitNewIndicator("Test Name", "TT", user.get()).getId();
+
+        LocalDate firstDate = LocalDate.of(2019, 12, 30);
+        for (int i = 0; i < 5; i++) {
+            postRecord(indicatorId, firstDate.plusDays(i), 10.0 + i);
+        }
+        postRecord(indicatorId, firstDate, 42.0);
+
+        Optional<Indicator> indicator = indicatorRepository.findById(indicatorId);
+        assertTrue(indicator.isPresent());
+        assertTrue(indicator.get().isChunked());
+        assertTrue(indicator.get().getRecords().isEmpty());
+        assertEquals(2, indicator.get().getChunks().size());
+
+        RecordRequest deleteRequest = new RecordRequest();
+        deleteRequest.setIndicatorId(indicatorId);
+        deleteRequest.setDate(firstDate.plusDays(1));
+        deleteRequest.setValue(0.0);
+        mockMvc.perform(delete(API_INDICATOR_PREFIX + "/" + indicatorId + "/records")
+                .content(json(deleteRequest))
+                .contentType(contentType))
+                .andExpect(status().isOk());
+
+        MvcResult mvcResult = mockMvc.perform(get(API_INDICATOR_PREFIX + "/" + indicatorId)
+                .contentType(contentType))
+                .andExpect(status().isOk())
+                .andReturn();
+        IndicatorResponse indicatorResponse = gson.fromJson(mvcResult.getResponse().getContentAsString(), IndicatorResponse.class);
+
+        assertEquals(4, indicatorResponse.getRecords().size());
+        assertEquals(firstDate, indicatorResponse.getRecords().get(0).getDate());
+        assertEquals(42.0, indicatorResponse.getRecords().get(0).getValue(), 0.0d);
+        assertEquals(firstDate.plusDays(2), indicatorResponse.getRecords().get(1).getDate());
+        assertEquals(firstDate.plusDays(4), indicatorResponse.getRecords().get(3).getDate());
+
+        mockMvc.perform(get(API_INDICATOR_PREFIX + "/" + indicatorId + "/records")
+                .param("from", "2020-01-01")
+                .param("order", "desc")
+                .contentType(contentType))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("length()").value(3))
+                .andExpect(jsonPath("[0].date").value("2020-01-03"))
+                .andExpect(jsonPath("[1].value").value(13.0));
+
+        mockMvc.perform(get(API_INDICATOR_PREFIX + "/" + indicatorId + "/changes")
+                .param("since", "5")
+                .contentType(contentType))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("version").value(7))
+                .andExpect(jsonPath("upserts.length()").value(1))
+                .andExpect(jsonPath("upserts[0].value").value(42.0))
+                .andExpect(jsonPath("deletes[0]").value("2019-12-31"));
+
+        mockMvc.perform(get(API_INDICATOR_PREFIX + "/" + indicatorId + "/stats")
+                .param("from", "2020-01-01")
+                .contentType(contentType))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("count").value(3))
+                .andExpect(jsonPath("mean").value(13.0))
+                .andExpect(jsonPath("stddev").value(1.0))
+                .andExpect(jsonPath("change").value(2.0));
+    }
+
+    @Test
+    public void addRecordsBatch() throws Exception {
+        Optional<User> user = userRepository.findByEmail(TEST_EMAIL);
+        assertTrue(user.isPresent());
+        long indicatorId = submitNewIndicator("Test Name", "TT", user.get()).getId();
+
+        postRecord(indicatorId, LocalDate.of(2018, 6, 1), 1.0);
+        long version = indicatorRepository.findChangeVersionById(indicatorId);
+
+        RecordBatchRequest batchRequest = new RecordBatchRequest();
+        batchRequest.setRecords(new ArrayList<>());
+        LocalDate firstDate = LocalDate.of(2019, 12, 1);
+        for (int i = 0; i < 60; i++) {
+            RecordValueRequest record = new RecordValueRequest();
+            record.setDate(firstDate.plusDays(i));
+            record.setValue((double) i);
+            batchRequest.getRecords().add(record);
+        }
+
+        mockMvc.perform(post(API_INDICATOR_PREFIX + "/" + indicatorId + "/records:batch")
+                .content(json(batchRequest))
+                .contentType(contentType))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("changed").value(60));
+        assertEquals(version + 1, indicatorRepository.findChangeVersionById(indicatorId));
+
+        mockMvc.perform(post(API_INDICATOR_PREFIX + "/" + indicatorId + "/records:batch")
+                .content(json(batchRequest))
+                .contentType(contentType))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("changed").value(0));
+        assertEquals(version + 1, indicatorRepository.findChangeVersionById(indicatorId));
+
+        Optional<Indicator> indicator = indicatorRepository.findById(indicatorId);
+        assertTrue(indicator.isPresent());
+        assertEquals(3, indicator.get().getChunks().size());
+        assertEquals(version, indicator.get().getChunks().get(0).getChangeVersion().longValue());
+        assertEquals(61, indicator.get().decodeChunks().size());
+        assertEquals(59.0, indicator.get().decodeChunks().valueAt(60), 0.0d);
+    }
+
+    @Test
+    public void concurrentRecordWritesKeepEveryPoint() throws Exception {
+        Optional<User> user = userRepository.findByEmail(TEST_EMAIL);
+        assertTrue(user.isPresent());
+        long indicatorId = submitNewIndicator("Test Name", "TT", user.get()).getId();
+        IndicatorHeader header = indicatorRepository.findHeaderById(indicatorId).orElseThrow(AssertionError::new);
+
+        // every write decodes and encodes the same chunk again
+        LocalDate firstDate = LocalDate.of(2020, 1, 1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> writes = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            LocalDate date = firstDate.plusDays(i);
+            writes.add(executor.submit(() -> recordService.upsertRecord(header, date, 1.0, user.get().getId())));
+        }
+        for (Future<?> write : writes) {
+            write.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        recordService.deleteRecord(header, firstDate, user.get().getId());
+
+        assertEquals(21, indicatorRepository.findChangeVersionById(indicatorId));
+        Optional<Indicator> indicator = indicatorRepository.findById(indicatorId);
+        assertTrue(indicator.isPresent());
+        assertEquals(19, indicator.get().decodeChunks().size());
+        assertEquals(21, indicator.get().getChunks().get(0).getChangeVersion().longValue());
+    }
+
+    @Test
+    public void addAndDeleteRecordMinimal() throws Exception {
+        Optional<User> user = userRepository.findByEmail(TEST_EMAIL);
+        assertTrue(user.isPresent());
+        long indicatorId = submitNewIndicator("Test Name", "TT", user.get()).getId();
+
+        postRecord(indicatorId, LocalDate.of(2019, 12, 31), 4.0);
+        postRecord(indicatorId, LocalDate.of(2020, 1, 1), 6.0);
+
+        RecordRequest recordRequest = new RecordRequest();
+        recordRequest.setIndicatorId(indicatorId);
+        recordRequest.setDate(LocalDate.of(2020, 1, 2));
+        recordRequest.setValue(5.0);
+        mockMvc.perform(post(API_INDICATOR_PREFIX + "/" + indicatorId + "/records")
+                .header("Prefer", "return=minimal")
+                .content(json(recordRequest))
+                .contentType(contentType))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("changed").value(true))
+                .andExpect(jsonPath("summary.count").value(3))
+                .andExpect(jsonPath("summary.min").value(4.0))
+                .andExpect(jsonPath("summary.max").value(6.0))
+                .andExpect(jsonPath("summary.firstDate").value("2019-12-31"))
+                .andExpect(jsonPath("summary.lastValue").value(5.0));
+
+        recordRequest.setDate(LocalDate.of(2019, 12, 31));
+        mockMvc.perform(delete(API_INDICATOR_PREFIX + "/" + indicatorId + "/records")
+                .header("Prefer", "return=minimal")
+                .content(json(recordRequest))
+                .contentType(contentType))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("record.value").value(4.0))
+                .andExpect(jsonPath("summary.count").value(2))
+                .andExpect(jsonPath("summary.min").value(5.0))
+                .andExpect(jsonPath("summary.firstDate").value("2020-01-01"))
+                .andExpect(jsonPath("summary.lastDate").value("2020-01-02"));
+    }
+
+    @Test
+    public void uploadIndicatorById() throws Exception {
+        Optional<User> user = userRepository.findByEmail(TEST_EMAIL);
+        assertTrue(user.isPresent());
+        long indicatorId = submitNewIndicator("Test Name", "TT", user.get()).getId();
+
+        postRecord(indicatorId, LocalDate.of(2019, 1, 1), 1.0);
+
+        MockMultipartFile jsonFile = new MockMultipartFile("file", "Test.json", "multipart/form-data",
+                new ClassPathResource("Test.json").getInputStream());
+        mockMvc.perform(multipart(API_INDICATOR_PREFIX + "/" + indicatorId + "/upload")
+                .file(jsonFile))
+                .andExpect(status().isOk());
+
+        Optional<Indicator> indicator = indicatorRepository.findById(indicatorId);
+        assertTrue(indicator.isPresent());
+        assertEquals(2, indicator.get().decodeChunks().size());
+        assertEquals(LocalDate.of(2019, 3, 30), indicator.get().decodeChunks().dateAt(0));
+        assertEquals(123.0, indicator.get().decodeChunks().valueAt(1), 0.0d);
+
+        mockMvc.perform(get(API_INDICATOR_PREFIX + "/" + indicatorId + "/download"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("records.length()").value(2))
+                .andExpect(jsonPath("records[0].date").value("2019-03-30"))
+                .andExpect(jsonPath("records[1].value").value(123.0));
+    }
+
+    @Test
+    public void uploadIndicatorByIdOutOfOrder() throws Exception {
+        Optional<User> user = userRepository.findByEmail(TEST_EMAIL);
+        assertTrue(user.isPresent());
+        long indicatorId = submitNewIndicator("Test Name", "TT", user.get()).getId();
+
+        LocalDate firstDate = LocalDate.of(2000, 1, 1);
+        int batch = AppConstants.IMPORT_BATCH_RECORDS;
+        double[] values = new double[batch + 1000];
+        List<Integer> days = new ArrayList<>();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i;
+            days.add(i);
+        }
+        uploadPoints(indicatorId, firstDate, days, values);
+
+        // a full ordered batch is merged before day 100 and the descending rest arrive
+        days.clear();
+        for (int i = 0; i <= batch; i++) {
+            if (i != 100) {
+                days.add(i);
+            }
+        }
+        days.add(100);
+        for (int i = values.length - 1; i > batch; i--) {
+            if (i != values.length - 10) {
+                days.add(i);
+            }
+        }
+        values[100] = -100;
+        values[values.length - 500] = -500;
+        uploadPoints(indicatorId, firstDate, days, values);
+
+        Optional<Indicator> indicator = indicatorRepository.findById(indicatorId);
+        assertTrue(indicator.isPresent());
+        Series series = indicator.get().decodeChunks();
+        assertEquals(values.length - 1, series.size());
+        assertEquals(-100.0, series.valueAt(100), 0.0d);
+        assertEquals(-500.0, series.valueAt(values.length - 500), 0.0d);
+        assertEquals(firstDate.plusDays(values.length - 9), series.dateAt(values.length - 10));
+    }
+
+    @Test
+    public void uploadIndicatorByIdRefreshesRollups() throws Exception {
+        Optional<User> user = userRepository.findByEmail(TEST_EMAIL);
+        assertTrue(user.isPresent());
+        long indicatorId = submitNewIndicator("Test Name", "TT", user.get()).getId();
+
+        LocalDate firstDate = LocalDate.of(2019, 12, 30);
+        double[] values = {0, 1, 2, 3, 4};
+        uploadPoints(indicatorId, firstDate, Arrays.asList(0, 1, 2, 3, 4), values);
+
+        mockMvc.perform(get(API_INDICATOR_PREFIX + "/" + indicatorId + "/rollup")
+                .param("bucket", "year")
+                .contentType(contentType))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("length()").value(2))
+                .andExpect(jsonPath("[0].count").value(2))
+                .andExpect(jsonPath("[1].count").value(3))
+                .andExpect(jsonPath("[1].sum").value(9.0));
+
+        values[4] = 10;
+        uploadPoints(indicatorId, firstDate, Arrays.asList(1, 2, 3, 4), values);
+
+        mockMvc.perform(get(API_INDICATOR_PREFIX + "/" + indicatorId + "/rollup")
+                .param("bucket", "year")
+                .contentType(contentType))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("length()").value(2))
+                .andExpect(jsonPath("[0].count").value(1))
+                .andExpect(jsonPath("[0].first").value(1.0))
+                .andExpect(jsonPath("[1].sum").value(15.0))
+                .andExpect(jsonPath("[1].max").value(10.0));
+    }
+
+    @Test
+    public void getIndicatorSummariesDecodesLatestChunksOnly() throws Exception {
+        User user = userService.createUser("Summary User", "chunked_summary@grafeo.pro", "chunked_summary@grafeo.pro", TEST_PASSWORD);
+
+        LoginRequest loginRequest = new LoginRequest();
+        loginRequest.setUsernameOrEmail("chunked_summary@grafeo.pro");
+        loginRequest.setPassword(TEST_PASSWORD);
+
+        mockMvc.perform(post(AuthControllerTest.API_AUTH_PREFIX + "/signin")
+                .content(json(loginRequest))
+                .contentType(contentType))
+                .andExpect(status().isOk());
+
+        long indicatorId = submitNewIndicator("Test Name", "TT", user).getId();
+        postRecord(indicatorId, LocalDate.of(2018, 5, 1), 1.0);
+        postRecord(indicatorId, LocalDate.of(2018, 6, 1), 2.0);
+        postRecord(indicatorId, LocalDate.of(2019, 5, 1), 3.0);
+        postRecord(indicatorId, LocalDate.of(2020, 5, 1), 4.0);
+        postRecord(indicatorId, LocalDate.of(2020, 6, 1), 5.0);
+
+        // the sparkline reaches back into the 2019 chunk, the 2018 one is only counted
+        mockMvc.perform(get("/api/users/" + user.getId() + "/indicators")
+                .param("view", "summary")
+                .param("sparkline", "3")
+                .contentType(contentType))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content[0].recordCount").value(5))
+                .andExpect(jsonPath("content[0].lastDate").value("2020-06-01"))
+                .andExpect(jsonPath("content[0].lastValue").value(5.0))
+                .andExpect(jsonPath("content[0].sparkline.length()").value(3))
+                .andExpect(jsonPath("content[0].sparkline[0]").value(3.0));
+
+        mockMvc.perform(get("/api/users/" + user.getId() + "/indicators")
+                .param("view", "summary")
+                .contentType(contentType))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content[0].recordCount").value(5))
+                .andExpect(jsonPath("content[0].lastValue").value(5.0))
+                .andExpect(jsonPath("content[0].sparkline").doesNotExist());
+    }
+
+    private void postRecord(long indicatorId, LocalDate date, double value) throws Exception {
+        RecordRequest recordRequest = new RecordRequest();
+        recordRequest.setIndicatorId(indicatorId);
+        recordRequest.setDate(date);
+        recordRequest.setValue(value);
+        mockMvc.perform(post(API_INDICATOR_PREFIX + "/" + indicatorId + "/records")
+                .content(json(recordRequest))
+                .contentType(contentType))
+                .andExpect(status().isOk());
+    }
+}
@@ -1,6 +1,7 @@
 package top.valiev.grafeo.controller;
 
 import com.google.common.collect.Lists;
+import com.jayway.jsonpath.JsonPath;
 import org.apache.commons.io.IOUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,6 +11,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.TestPropertySource;
@@ -24,16 +26,26 @@ import top.valiev.grafeo.model.User;
 import top.valiev.grafeo.payload.IndicatorRequest;
 import top.valiev.grafeo.payload.IndicatorResponse;
 import top.valiev.grafeo.payload.LoginRequest;
+import top.valiev.grafeo.payload.RecordBatchRequest;
 import top.valiev.grafeo.payload.RecordRequest;
+import top.valiev.grafeo.payload.RecordValueRequest;
+import top.valiev.grafeo.service.series.CsvSeriesReader;
+import top.valiev.grafeo.service.series.SeriesFileFormat;
+import top.valiev.grafeo.util.AppConstants;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Optional;
+import java.util.zip.GZIPInputStream;
 
+import static org.hamcrest.Matchers.closeTo;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
@@ -110,6 +122,39 @@ public class IndicatorControllerTest extends AbstractControllerTest {
         assertEquals(initialIndicator.get().getRecords().size(), indicatorResponse.getRecords().size());
     }
 
+    @Test
+    public void getIndicatorByIdNotModified() throws Exception {
+        Optional<User> user = userRepository.findByEmail(TEST_EMAIL);
+        assertTrue(user.isPresent());
+        long indicatorId = submitNewIndicator("Test Name", "TT", user.get()).getId();
+
+        String etag = mockMvc.perform(get(API_INDICATOR_PREFIX + "/" + indicatorId)
+                .contentType(contentType))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+
+        mockMvc.perform(get(API_INDICATOR_PREFIX + "/" + indicatorId)
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .contentType(contentType))
+                .andExpect(status().isNotModified());
+
+        RecordRequest recordRequest = new RecordRequest();
+        recordRequest.setIndicatorId(indicatorId);
+        recordRequest.setDate(LocalDate.of(2020, 1, 1));
+        recordRequest.setValue(1.0);
+        mockMvc.perform(post(API_INDICATOR_PREFIX + "/" + indicatorId + "/records")
+                .content(json(recordRequest))
+                .contentType(contentType))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get(API_INDICATOR_PREFIX + "/" + indicatorId)
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .contentType(contentType))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("records.length()").value(1));
+    }
+
     @Test
     public void editIndicator() throws Exception {
         Optional<User> user = userRepository.findByEmail(TEST_EMAIL);
@@ -314,6 +359,54 @@ public class IndicatorControllerTest extends AbstractControllerTest {
         assertTrue(currentIndicator.get().getRecords().isEmpty());
     }
 
+    @Test
+    public void getIndicatorsByIds() throws Exception {
+        Optional<User> user = userRepository.findByEmail(TEST_EMAIL);
+        assertTrue(user.isPresent());
+        long firstId = submitNewIndicator("Test Name", "TT", user.get()).getId();
+        long secondId = submitNewIndicator("Test Name", "TT", user.get()).getId();
+
+        RecordRequest recordRequest = new RecordRequest();
+        recordRequest.setIndicatorId(firstId);
+        recordRequest.setDate(LocalDate.of(2020, 1, 1));
+        recordRequest.setValue(42.0);
+        mockMvc.perform(post(API_INDICATOR_PREFIX + "/" + firstId + "/records")
+                .content(json(recordRequest))
+                .contentType(contentType))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get(API_INDICATOR_PREFIX)
+                .param("ids", secondId + "," + firstId + "," + secondId)
+                .contentType(contentType))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("length()").value(2))
+                .andExpect(jsonPath("[0].id").value(secondId))
+                .andExpect(jsonPath("[0].records.length()").value(0))
+                .andExpect(jsonPath("[1].records[0].value").value(42.0))
+                .andExpect(jsonPath("[1].createdBy.id").value(user.get().getId()));
+
+        mockMvc.perform(get(API_INDICATOR_PREFIX)
+                .param("ids", firstId + ",1000000")
+                .contentType(contentType))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(get(API_INDICATOR_PREFIX + "/resample")
+                .param("ids", firstId + "," + secondId)
+                .param("step", "month")
+                .param("fill", "previous")
+                .contentType(contentType))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("dates[0]").value("2020-01-01"))
+                .andExpect(jsonPath("values[0][0]").value(42.0))
+                .andExpect(jsonPath("values[1].length()").value(1));
+
+        mockMvc.perform(get(API_INDICATOR_PREFIX + "/resample")
+                .param("ids", String.valueOf(firstId))
+                .param("agg", "median")
+                .contentType(contentType))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void unauthorisedAccess() throws Exception {
         Optional<User> user = userRepository.findByEmail(TEST_EMAIL);
@@ -330,6 +423,11 @@ public class IndicatorControllerTest extends AbstractControllerTest {
                 .contentType(contentType))
                 .andExpect(status().isForbidden());
 
+        mockMvc.perform(get(API_INDICATOR_PREFIX)
+                .param("ids", String.valueOf(initialIndicatorId))
+                .contentType(contentType))
+                .andExpect(status().isForbidden());
+
 
         IndicatorRequest editIndicatorRequest = new IndicatorRequest();
         editIndicatorRequest.setId(initialIndicatorId);
@@ -462,6 +560,529 @@ public class IndicatorControllerTest extends AbstractControllerTest {
         }
     }
 
+    @Test
+    public void downloadIndicatorByIdGzip() throws Exception {
+        Optional<User> user = userRepository.findByEmail(TEST_EMAIL);
+        assertTrue(user.isPresent());
+
+        long indicatorId = submitNewIndicator("Test Name", "TT", user.get()).getId();
+        RecordRequest recordRequest = new RecordRequest();
+        recordRequest.setIndicatorId(indicatorId);
+        recordRequest.setDate(LocalDate.of(2020, 1, 1));
+        recordRequest.setValue(42.0);
+        mockMvc.perform(post(API_INDICATOR_PREFIX + "/" + indicatorId + "/records")
+                .content(json(recordRequest))
+                .contentType(contentType))
+                .andExpect(status().isOk());
+
+        MvcResult mvcResult = mockMvc.perform(get(API_INDICATOR_PREFIX + "/" + indicatorId + "/download")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertEquals("gzip", mvcResult.getResponse().getHeader(HttpHeaders.CONTENT_ENCODING));
+
+        InputStream input = new GZIPInputStream(new ByteArrayInputStream(mvcResult.getResponse().getContentAsByteArray()));
+        Indicator fileIndicator = gson.fromJson(IOUtils.toString(input, StandardCharsets.UTF_8), Indicator.class);
+
+        assertEquals("Test Name", fileIndicator.getName());
+        assertEquals(1, fileIndicator.getRecords().size());
+        assertEquals(42.0, fileIndicator.getRecords().get(0).getValue(), 0.0d);
+        assertEquals(LocalDate.of(2020, 1, 1), fileIndicator.getRecords().get(0).getDate());
+
+        for (String refused : Arrays.asList("gzip;q=0, deflate", "identity", "*, gzip;q=0.0", "x-gzipped")) {
+            mvcResult = mockMvc.perform(get(API_INDICATOR_PREFIX + "/" + indicatorId + "/download")
+                    .header(HttpHeaders.ACCEPT_ENCODING, refused))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            assertNull(mvcResult.getResponse().getHeader(HttpHeaders.CONTENT_ENCODING), refused);
+        }
+
+        mvcResult = mockMvc.perform(get(API_INDICATOR_PREFIX + "/" + indicatorId + "/download")
+                .header(HttpHeaders.ACCEPT_ENCODING, "deflate;q=1, *;q=0.5"))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertEquals("gzip", mvcResult.getResponse().getHeader(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    public void downloadAndUploadIndicatorBinary() throws Exception {
+        Optional<User> user = userRepository.findByEmail(TEST_EMAIL);
+        assertTrue(user.isPresent());
+        long indicatorId = submitNewIndicator("Test Name", "TT", user.get()).getId();
+        for (int i = 0; i < 5; i++) {
+            RecordRequest recordRequest = new RecordRequest();
+            recordRequest.setIndicatorId(indicatorId);
+            recordRequest.setDate(LocalDate.of(2020, 1, 1).plusDays(i * 3));
+            recordRequest.setValue(i * 1.5);
+            mockMvc.perform(post(API_INDICATOR_PREFIX + "/" + indicatorId + "/records")
+                    .content(json(recordRequest))
+                    .contentType(contentType))
+                    .andExpect(status().isOk());
+        }
+
+        MvcResult mvcResult = mockMvc.perform(get(API_INDICATOR_PREFIX + "/" + indicatorId + "/download")
+                .accept(SeriesFileFormat.MEDIA_TYPE))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertEquals(SeriesFileFormat.MEDIA_TYPE, mvcResult.getResponse().getContentType());
+        byte[] content = mvcResult.getResponse().getContentAsByteArray();
+
+        long copyId = submitNewIndicator("Test Name", "TT", user.get()).getId();
+        MockMultipartFile binaryFile = new MockMultipartFile("file", "Test.grafeo", SeriesFileFormat.MEDIA_TYPE, content);
+        mockMvc.perform(multipart(API_INDICATOR_PREFIX + "/" + copyId + "/upload")
+                .file(binaryFile))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("records.length()").value(5))
+                .andExpect(jsonPath("records[4].date").value("2020-01-13"))
+                .andExpect(jsonPath("records[4].value").value(6.0));
+
+        content[content.length - 1] ^= 1;
+        mockMvc.perform(multipart(API_INDICATOR_PREFIX + "/" + copyId + "/upload")
+                .file(new MockMultipartFile("file", "Test.grafeo", SeriesFileFormat.MEDIA_TYPE, content)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void uploadIndicatorByIdCsv() throws Exception {
+        Optional<User> user = userRepository.findByEmail(TEST_EMAIL);
+        assertTrue(user.isPresent());
+        long indicatorId = submitNewIndicator("Test Name", "TT", user.get()).getId();
+
+        String csv = "date,value\n2020-01-02,2.5\n2020-01-01,1\n2020-01-02,3.25\n";
+        mockMvc.perform(multipart(API_INDICATOR_PREFIX + "/" + indicatorId + "/upload")
+                .file(new MockMultipartFile("file", "Test.csv", CsvSeriesReader.MEDIA_TYPE, csv.getBytes(StandardCharsets.US_ASCII))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("name").value("Test Name"))
+                .andExpect(jsonPath("records.length()").value(2))
+                .andExpect(jsonPath("records[1].date").value("2020-01-02"))
+                .andExpect(jsonPath("records[1].value").value(3.25));
+
+        mockMvc.perform(multipart(API_INDICATOR_PREFIX + "/" + indicatorId + "/upload")
+                .file(new MockMultipartFile("file", "Test.csv", CsvSeriesReader.MEDIA_TYPE, "2020-01-01,one\n".getBytes(StandardCharsets.US_ASCII))))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void getIndicatorSeries() throws Exception {
+        Optional<User> user = userRepository.findByEmail(TEST_EMAIL);
+        assertTrue(user.isPresent());
+
+        IndicatorResponse createIndicatorResponse = submitNewIndicator("Test Name", "TT", user.get());
+        long indicatorId = createIndicatorResponse.getId();
+
+        for (int i = 1; i < 11; i++) {
+            RecordRequest recordRequest = new RecordRequest();
+            recordRequest.setIndicatorId(indicatorId);
+            recordRequest.setDate(LocalDate.of(2020, 1, i));
+            recordRequest.setValue(100.1 + i);
+            mockMvc.perform(post(API_INDICATOR_PREFIX + "/" + indicatorId + "/records")
+                    .content(json(recordRequest))
+                    .contentType(contentType))
+                    .andExpect(status().isOk());
+        }
+
+        mockMvc.perform(get(API_INDICATOR_PREFIX + "/" + indicatorId + "/series")
+                .param("points", "5")
+                .param("from", "2020-01-02")
+                .contentType(contentType))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("totalPoints").value(9))
+                .andExpect(jsonPath("dates.length()").value(5))
+                .andExpect(jsonPath("dates[0]").value("2020-01-02"))
+                .andExpect(jsonPath("dates[4]").value("2020-01-10"));
+
+        mockMvc.perform(get(API_INDICATOR_PREFIX + "/" + indicatorId + "/series")
+                .param("points", "1")
+                .contentType(contentType))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get(API_INDICATOR_PREFIX + "/" + indicatorId + "/derived")
+                .param("op", "sma")
+                .param("window", "3")
+                .param("from", "2020-01-02")
+                .param("points", "4")
+                .contentType(contentType))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("totalPoints").value(7))
+                .andExpect(jsonPath("dates.length()").value(4))
+                .andExpect(jsonPath("dates[0]").value("2020-01-04"))
+                .andExpect(jsonPath("values[0]", closeTo(103.1, 1e-9)));
+
+        mockMvc.perform(get(API_INDICATOR_PREFIX + "/" + indicatorId + "/derived")
+                .param("op", "median")
+                .contentType(contentType))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get(API_INDICATOR_PREFIX + "/" + indicatorId + "/forecast")
+                .param("horizon", "3")
+                .param("model", "holt")
+                .contentType(contentType))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("step").value(1))
+                .andExpect(jsonPath("dates.length()").value(3))
+                .andExpect(jsonPath("dates[0]").value("2020-01-11"))
+                .andExpect(jsonPath("values[0]", closeTo(111.1, 1e-6)))
+                .andExpect(jsonPath("lower[2]", closeTo(113.1, 1e-6)));
+    }
+
+    @Test
+    public void getStats() throws Exception {
+        Optional<User> user = userRepository.findByEmail(TEST_EMAIL);
+        assertTrue(user.isPresent());
+        long indicatorId = submitNewIndicator("Test Name", "TT", user.get()).getId();
+
+        for (int i = 1; i < 6; i++) {
+            RecordRequest recordRequest = new RecordRequest();
+            recordRequest.setIndicatorId(indicatorId);
+            recordRequest.setDate(LocalDate.of(2020, 1, i));
+            recordRequest.setValue((double) i);
+            mockMvc.perform(post(API_INDICATOR_PREFIX + "/" + indicatorId + "/records")
+                    .content(json(recordRequest))
+                    .contentType(contentType))
+                    .andExpect(status().isOk());
+        }
+
+        mockMvc.perform(get(API_INDICATOR_PREFIX + "/" + indicatorId + "/stats")
+                .param("from", "2020-01-02")
+                .param("to", "2020-01-04")
+                .contentType(contentType))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("count").value(3))
+                .andExpect(jsonPath("min").value(2.0))
+                .andExpect(jsonPath("max").value(4.0))
+                .andExpect(jsonPath("mean").value(3.0))
+                .andExpect(jsonPath("stddev").value(1.0))
+                .andExpect(jsonPath("first.date").value("2020-01-02"))
+                .andExpect(jsonPath("last.value").value(4.0))
+                .andExpect(jsonPath("change").value(2.0))
+                .andExpect(jsonPath("changePercent").value(100.0));
+
+        mockMvc.perform(get(API_INDICATOR_PREFIX + "/" + indicatorId + "/stats")
+                .param("from", "2021-01-01")
+                .contentType(contentType))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("count").value(0))
+                .andExpect(jsonPath("mean").doesNotExist());
+    }
+
+    @Test
+    public void getRecordsInRange() throws Exception {
+        Optional<User> user = userRepository.findByEmail(TEST_EMAIL);
+        assertTrue(user.isPresent());
+
+        IndicatorResponse createIndicatorResponse = submitNewIndicator("Test Name", "TT", user.get());
+        long indicatorId = createIndicatorResponse.getId();
+
+        for (int i = 1; i < 11; i++) {
+            RecordRequest recordRequest = new RecordRequest();
+            recordRequest.setIndicatorId(indicatorId);
+            recordRequest.setDate(LocalDate.of(2020, 1, i));
+            recordRequest.setValue(100.0 + i);
+            mockMvc.perform(post(API_INDICATOR_PREFIX + "/" + indicatorId + "/records")
+                    .content(json(recordRequest))
+                    .contentType(contentType))
+                    .andExpect(status().isOk());
+        }
+
+        mockMvc.perform(get(API_INDICATOR_PREFIX + "/" + indicatorId + "/records")
+                .param("from", "2020-01-03")
+                .param("to", "2020-01-08")
+                .contentType(contentType))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("length()").value(6))
+                .andExpect(jsonPath("[0].date").value("2020-01-03"))
+                .andExpect(jsonPath("[5].value").value(108.0));
+
+        mockMvc.perform(get(API_INDICATOR_PREFIX + "/" + indicatorId + "/records")
+                .param("limit", "3")
+                .param("order", "desc")
+                .contentType(contentType))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("length()").value(3))
+                .andExpect(jsonPath("[0].date").value("2020-01-10"))
+                .andExpect(jsonPath("[2].date").value("2020-01-08"));
+
+        mockMvc.perform(get(API_INDICATOR_PREFIX + "/" + indicatorId + "/records")
+                .param("order", "sideways")
+                .contentType(contentType))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void addRecordsBatch() throws Exception {
+        Optional<User> user = userRepository.findByEmail(TEST_EMAIL);
+        assertTrue(user.isPresent());
+        long indicatorId = submitNewIndicator("Test Name", "TT", user.get()).getId();
+
+        RecordBatchRequest batchRequest = new RecordBatchRequest();
+        batchRequest.setRecords(new ArrayList<>());
+        LocalDate firstDate = LocalDate.of(2020, 1, 1);
+        for (int i = 0; i < 120; i++) {
+            RecordValueRequest record = new RecordValueRequest();
+            record.setDate(firstDate.plusDays(i));
+            record.setValue((double) i);
+            batchRequest.getRecords().add(record);
+        }
+        RecordValueRequest duplicate = new RecordValueRequest();
+        duplicate.setDate(firstDate);
+        duplicate.setValue(-1.0);
+        batchRequest.getRecords().add(duplicate);
+
+        mockMvc.perform(post(API_INDICATOR_PREFIX + "/" + indicatorId + "/records:batch")
+                .content(json(batchRequest))
+                .contentType(contentType))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("received").value(121))
+                .andExpect(jsonPath("changed").value(120));
+
+        mockMvc.perform(post(API_INDICATOR_PREFIX + "/" + indicatorId + "/records:batch")
+                .content(json(batchRequest))
+                .contentType(contentType))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("changed").value(0));
+
+        Optional<Indicator> indicator = indicatorRepository.findById(indicatorId);
+        assertTrue(indicator.isPresent());
+        assertEquals(120, indicator.get().getRecords().size());
+        assertEquals(-1.0, indicator.get().getRecords().get(0).getValue(), 0.0d);
+
+        batchRequest.setRecords(new ArrayList<>());
+        mockMvc.perform(post(API_INDICATOR_PREFIX + "/" + indicatorId + "/records:batch")
+                .content(json(batchRequest))
+                .contentType(contentType))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void addRecordsBatchStoresOnlyRollupsWithRecords() throws Exception {
+        Optional<User> user = userRepository.findByEmail(TEST_EMAIL);
+        assertTrue(user.isPresent());
+        long indicatorId = submitNewIndicator("Test Name", "TT", user.get()).getId();
+
+        // the second batch spans ten years around the first one
+        List<List<LocalDate>> batches = Arrays.asList(
+                Arrays.asList(LocalDate.of(2015, 3, 3)),
+                Arrays.asList(LocalDate.of(2010, 1, 5), LocalDate.of(2020, 6, 10)));
+        for (List<LocalDate> dates : batches) {
+            RecordBatchRequest batchRequest = new RecordBatchRequest();
+            batchRequest.setRecords(new ArrayList<>());
+            for (LocalDate date : dates) {
+                RecordValueRequest record = new RecordValueRequest();
+                record.setDate(date);
+                record.setValue(1.0);
+                batchRequest.getRecords().add(record);
+            }
+            mockMvc.perform(post(API_INDICATOR_PREFIX + "/" + indicatorId + "/records:batch")
+                    .content(json(batchRequest))
+                    .contentType(contentType))
+                    .andExpect(status().isOk());
+        }
+        // one rollup per bucket and record, none for the empty buckets between them
+        assertEquals(12, countRollups(indicatorId));
+
+        RecordRequest deleteRequest = new RecordRequest();
+        deleteRequest.setIndicatorId(indicatorId);
+        deleteRequest.setDate(LocalDate.of(2020, 6, 10));
+        deleteRequest.setValue(1.0);
+        mockMvc.perform(delete(API_INDICATOR_PREFIX + "/" + indicatorId + "/records")
+                .content(json(deleteRequest))
+                .contentType(contentType))
+                .andExpect(status().isOk());
+        assertEquals(8, countRollups(indicatorId));
+    }
+
+    private int countRollups(long indicatorId) {
+        return recordRollupRepository.findByIndicatorIdAndBucketStartBetween(indicatorId,
+                LocalDate.of(1, 1, 1), LocalDate.of(9999, 12, 31)).size();
+    }
+
+    @Test
+    public void getChanges() throws Exception {
+        Optional<User> user = userRepository.findByEmail(TEST_EMAIL);
+        assertTrue(user.isPresent());
+        long indicatorId = submitNewIndicator("Test Name", "TT", user.get()).getId();
+
+        LocalDate firstDate = LocalDate.of(2020, 3, 1);
+        RecordRequest recordRequest = new RecordRequest();
+        recordRequest.setIndicatorId(indicatorId);
+        for (int i = 0; i < 3; i++) {
+            recordRequest.setDate(firstDate.plusDays(i));
+            recordRequest.setValue(1.0 + i);
+            mockMvc.perform(post(API_INDICATOR_PREFIX + "/" + indicatorId + "/records")
+                    .content(json(recordRequest))
+                    .contentType(contentType))
+                    .andExpect(status().isOk());
+        }
+
+        mockMvc.perform(get(API_INDICATOR_PREFIX + "/" + indicatorId + "/changes")
+                .contentType(contentType))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("version").value(3))
+                .andExpect(jsonPath("reset").value(true))
+                .andExpect(jsonPath("upserts.length()").value(3));
+
+        recordRequest.setDate(firstDate.plusDays(1));
+        recordRequest.setValue(20.0);
+        mockMvc.perform(post(API_INDICATOR_PREFIX + "/" + indicatorId + "/records")
+                .content(json(recordRequest))
+                .contentType(contentType))
+                .andExpect(status().isOk());
+        recordRequest.setDate(firstDate.plusDays(2));
+        mockMvc.perform(delete(API_INDICATOR_PREFIX + "/" + indicatorId + "/records")
+                .content(json(recordRequest))
+                .contentType(contentType))
+                .andExpect(status().isOk());
+        recordRequest.setDate(firstDate);
+        recordRequest.setValue(1.0);
+        mockMvc.perform(post(API_INDICATOR_PREFIX + "/" + indicatorId + "/records")
+                .content(json(recordRequest))
+                .contentType(contentType))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get(API_INDICATOR_PREFIX + "/" + indicatorId + "/changes")
+                .param("since", "3")
+                .contentType(contentType))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("version").value(5))
+                .andExpect(jsonPath("reset").value(false))
+                .andExpect(jsonPath("upserts.length()").value(1))
+                .andExpect(jsonPath("upserts[0].value").value(20.0))
+                .andExpect(jsonPath("deletes.length()").value(1))
+                .andExpect(jsonPath("deletes[0]").value("2020-03-03"));
+
+        mockMvc.perform(get(API_INDICATOR_PREFIX + "/" + indicatorId + "/changes")
+                .param("since", "5")
+                .contentType(contentType))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("upserts.length()").value(0))
+                .andExpect(jsonPath("deletes.length()").value(0));
+    }
+
+    @Test
+    public void addAndDeleteRecordMinimal() throws Exception {
+        Optional<User> user = userRepository.findByEmail(TEST_EMAIL);
+        assertTrue(user.isPresent());
+        long indicatorId = submitNewIndicator("Test Name", "TT", user.get()).getId();
+
+        RecordRequest recordRequest = new RecordRequest();
+        recordRequest.setIndicatorId(indicatorId);
+        for (int i = 0; i < 3; i++) {
+            recordRequest.setDate(LocalDate.of(2020, 5, 1 + i));
+            recordRequest.setValue(10.0 - i);
+            mockMvc.perform(post(API_INDICATOR_PREFIX + "/" + indicatorId + "/records")
+                    .header("Prefer", "return=minimal")
+                    .content(json(recordRequest))
+                    .contentType(contentType))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("version").value(i + 1))
+                    .andExpect(jsonPath("changed").value(true))
+                    .andExpect(jsonPath("record.value").value(10.0 - i))
+                    .andExpect(jsonPath("records").doesNotExist());
+        }
+
+        mockMvc.perform(post(API_INDICATOR_PREFIX + "/" + indicatorId + "/records")
+                .header("Prefer", "return=minimal")
+                .content(json(recordRequest))
+                .contentType(contentType))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("version").value(3))
+                .andExpect(jsonPath("changed").value(false));
+
+        mockMvc.perform(delete(API_INDICATOR_PREFIX + "/" + indicatorId + "/records")
+                .header("Prefer", "return=minimal")
+                .content(json(recordRequest))
+                .contentType(contentType))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("version").value(4))
+                .andExpect(jsonPath("record.date").value("2020-05-03"))
+                .andExpect(jsonPath("summary.count").value(2))
+                .andExpect(jsonPath("summary.min").value(9.0))
+                .andExpect(jsonPath("summary.lastDate").value("2020-05-02"))
+                .andExpect(jsonPath("summary.lastValue").value(9.0));
+    }
+
+    @Test
+    public void getRollups() throws Exception {
+        Optional<User> user = userRepository.findByEmail(TEST_EMAIL);
+        assertTrue(user.isPresent());
+
+        IndicatorResponse createIndicatorResponse = submitNewIndicator("Test Name", "TT", user.get());
+        long indicatorId = createIndicatorResponse.getId();
+
+        LocalDate firstDate = LocalDate.of(2020, 1, 30);
+        for (int i = 0; i < 4; i++) {
+            RecordRequest recordRequest = new RecordRequest();
+            recordRequest.setIndicatorId(indicatorId);
+            recordRequest.setDate(firstDate.plusDays(i));
+            recordRequest.setValue(10.0 * (i + 1));
+            mockMvc.perform(post(API_INDICATOR_PREFIX + "/" + indicatorId + "/records")
+                    .content(json(recordRequest))
+                    .contentType(contentType))
+                    .andExpect(status().isOk());
+        }
+
+        RecordRequest deleteRequest = new RecordRequest();
+        deleteRequest.setIndicatorId(indicatorId);
+        deleteRequest.setDate(firstDate.plusDays(1));
+        deleteRequest.setValue(20.0);
+        mockMvc.perform(delete(API_INDICATOR_PREFIX + "/" + indicatorId + "/records")
+                .content(json(deleteRequest))
+                .contentType(contentType))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get(API_INDICATOR_PREFIX + "/" + indicatorId + "/rollup")
+                .param("bucket", "month")
+                .contentType(contentType))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("length()").value(2))
+                .andExpect(jsonPath("[0].bucketStart").value("2020-01-01"))
+                .andExpect(jsonPath("[0].count").value(1))
+                .andExpect(jsonPath("[0].max").value(10.0))
+                .andExpect(jsonPath("[0].last").value(10.0))
+                .andExpect(jsonPath("[1].bucketStart").value("2020-02-01"))
+                .andExpect(jsonPath("[1].count").value(2))
+                .andExpect(jsonPath("[1].sum").value(70.0))
+                .andExpect(jsonPath("[1].firstDate").value("2020-02-01"));
+
+        mockMvc.perform(get(API_INDICATOR_PREFIX + "/" + indicatorId + "/rollup")
+                .param("bucket", "year")
+                .contentType(contentType))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("length()").value(1))
+                .andExpect(jsonPath("[0].count").value(3))
+                .andExpect(jsonPath("[0].min").value(10.0))
+                .andExpect(jsonPath("[0].max").value(40.0));
+
+        RecordRequest updateRequest = new RecordRequest();
+        updateRequest.setIndicatorId(indicatorId);
+        updateRequest.setDate(firstDate.plusDays(3));
+        updateRequest.setValue(5.0);
+        mockMvc.perform(post(API_INDICATOR_PREFIX + "/" + indicatorId + "/records")
+                .content(json(updateRequest))
+                .contentType(contentType))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("records.length()").value(3));
+        deleteRequest.setDate(firstDate);
+        mockMvc.perform(delete(API_INDICATOR_PREFIX + "/" + indicatorId + "/records")
+                .content(json(deleteRequest))
+                .contentType(contentType))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get(API_INDICATOR_PREFIX + "/" + indicatorId + "/rollup")
+                .param("bucket", "month")
+                .contentType(contentType))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("length()").value(1))
+                .andExpect(jsonPath("[0].count").value(2))
+                .andExpect(jsonPath("[0].min").value(5.0))
+                .andExpect(jsonPath("[0].last").value(5.0));
+
+        mockMvc.perform(get(API_INDICATOR_PREFIX + "/" + indicatorId + "/rollup")
+                .param("bucket", "decade")
+                .contentType(contentType))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void uploadIndicatorById() throws Exception {
         Optional<User> user = userRepository.findByEmail(TEST_EMAIL);
@@ -495,4 +1116,195 @@ public class IndicatorControllerTest extends AbstractControllerTest {
         assertEquals(records.get(1).getDate(), LocalDate.of(2019, 4, 1));
         assertEquals(123.0, records.get(1).getValue(), 0);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void uploadIndicatorByIdAsync() throws Exception {
+        Optional<User> user = userRepository.findByEmail(TEST_EMAIL);
+        assertTrue(user.isPresent());
+        long indicatorId = submitNewIndicator("Test Name", "TT", user.get()).getId();
+
+        MockMultipartFile jsonFile = new MockMultipartFile("file", "Test.json", "multipart/form-data",
+                new ClassPathResource("Test.json").getInputStream());
+        MvcResult mvcResult = mockMvc.perform(multipart(API_INDICATOR_PREFIX + "/" + indicatorId + "/upload")
+                .file(jsonFile)
+                .header("Prefer", "respond-async"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("indicatorId").value(indicatorId))
+                .andReturn();
+        String location = mvcResult.getResponse().getHeader(HttpHeaders.LOCATION);
+        assertNotNull(location);
+        String jobPath = location.substring(location.indexOf("/api/imports/"));
+
+        String status = null;
+        for (int i = 0; i < 100 && !"DONE".equals(status); i++) {
+            Thread.sleep(50);
+            MvcResult jobResult = mockMvc.perform(get(jobPath))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            status = JsonPath.read(jobResult.getResponse().getContentAsString(), "status");
+            assertNotEquals("FAILED", status);
+        }
+        mockMvc.perform(get(jobPath))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("status").value("DONE"))
+                .andExpect(jsonPath("recordsRead").value(2))
+                .andExpect(jsonPath("changed").value(2));
+
+        Optional<Indicator> indicator = indicatorRepository.findById(indicatorId);
+        assertTrue(indicator.isPresent());
+        assertEquals("Test", indicator.get().getName());
+        assertEquals(2, indicator.get().getRecords().size());
+
+        mockMvc.perform(get("/api/imports/unknown"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void uploadIndicatorByIdInBatches() throws Exception {
+        Optional<User> user = userRepository.findByEmail(TEST_EMAIL);
+        assertTrue(user.isPresent());
+        long indicatorId = submitNewIndicator("Test Name", "TT", user.get()).getId();
+
+        int count = 12000;
+        LocalDate firstDate = LocalDate.of(1980, 1, 1);
+        StringBuilder content = new StringBuilder("{\"records\": [");
+        for (int i = count - 1; i >= 0; i--) {
+            content.append("{\"value\": ").append(i).append(", \"date\": \"").append(firstDate.plusDays(i)).append("\"},");
+        }
+        content.append("{\"value\": 42.0, \"date\": \"").append(firstDate).append("\"}], \"unit\": \"BU\"}");
+
+        MockMultipartFile jsonFile = new MockMultipartFile("file", "Batch.json", "multipart/form-data",
+                content.toString().getBytes(StandardCharsets.UTF_8));
+        mockMvc.perform(multipart(API_INDICATOR_PREFIX + "/" + indicatorId + "/upload")
+                .file(jsonFile))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("name").value("Test Name"))
+                .andExpect(jsonPath("unit").value("BU"))
+                .andExpect(jsonPath("records.length()").value(count))
+                .andExpect(jsonPath("records[0].value").value(42.0))
+                .andExpect(jsonPath("records[" + (count - 1) + "].date").value(firstDate.plusDays(count - 1).toString()));
+
+        MockMultipartFile brokenFile = new MockMultipartFile("file", "Broken.json", "multipart/form-data",
+                "{\"records\": [{\"value\": 1.0, \"date\": \"2020-01-01\"}, {\"value\": 2.0".getBytes(StandardCharsets.UTF_8));
+        mockMvc.perform(multipart(API_INDICATOR_PREFIX + "/" + indicatorId + "/upload")
+                .file(brokenFile))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get(API_INDICATOR_PREFIX + "/" + indicatorId)
+                .contentType(contentType))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("records.length()").value(count));
+    }
+
+    @Test
+    public void uploadIndicatorByIdMergesChanges() throws Exception {
+        Optional<User> user = userRepository.findByEmail(TEST_EMAIL);
+        assertTrue(user.isPresent());
+        long indicatorId = submitNewIndicator("Test Name", "TT", user.get()).getId();
+
+        LocalDate firstDate = LocalDate.of(2000, 1, 1);
+        double[] values = new double[1000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i;
+        }
+        uploadValues(indicatorId, firstDate, values);
+        long version = indicatorRepository.findChangeVersionById(indicatorId);
+
+        values[10] = -10;
+        values[20] = -20;
+        values[30] = Double.NaN;
+        values[40] = Double.NaN;
+        double[] grownValues = Arrays.copyOf(values, values.length + 1);
+        grownValues[values.length] = 42;
+        uploadValues(indicatorId, firstDate, grownValues);
+
+        mockMvc.perform(get(API_INDICATOR_PREFIX + "/" + indicatorId + "/changes")
+                .param("since", String.valueOf(version))
+                .contentType(contentType))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("version").value(version + 1))
+                .andExpect(jsonPath("reset").value(false))
+                .andExpect(jsonPath("upserts.length()").value(3))
+                .andExpect(jsonPath("upserts[0].value").value(-10.0))
+                .andExpect(jsonPath("upserts[2].date").value(firstDate.plusDays(values.length).toString()))
+                .andExpect(jsonPath("deletes.length()").value(2))
+                .andExpect(jsonPath("deletes[0]").value(firstDate.plusDays(30).toString()));
+
+        uploadValues(indicatorId, firstDate, grownValues);
+        assertEquals(version + 1, indicatorRepository.findChangeVersionById(indicatorId));
+    }
+
+    @Test
+    public void uploadIndicatorByIdOutOfOrder() throws Exception {
+        Optional<User> user = userRepository.findByEmail(TEST_EMAIL);
+        assertTrue(user.isPresent());
+        long indicatorId = submitNewIndicator("Test Name", "TT", user.get()).getId();
+
+        LocalDate firstDate = LocalDate.of(2000, 1, 1);
+        int batch = AppConstants.IMPORT_BATCH_RECORDS;
+        double[] values = new double[batch + 1000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i;
+        }
+        uploadValues(indicatorId, firstDate, values);
+
+        // a full ordered batch is merged before day 100 and the descending rest arrive
+        List<Integer> days = new ArrayList<>();
+        for (int i = 0; i <= batch; i++) {
+            if (i != 100) {
+                days.add(i);
+            }
+        }
+        days.add(100);
+        for (int i = values.length - 1; i > batch; i--) {
+            if (i != values.length - 10) {
+                days.add(i);
+            }
+        }
+        values[100] = -100;
+        values[values.length - 500] = -500;
+        uploadPoints(indicatorId, firstDate, days, values);
+
+        mockMvc.perform(get(API_INDICATOR_PREFIX + "/" + indicatorId + "/changes")
+                .param("since", "0")
+                .contentType(contentType))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("upserts.length()").value(values.length - 1))
+                .andExpect(jsonPath("upserts[100].value").value(-100.0))
+                .andExpect(jsonPath("upserts[" + (values.length - 500) + "].value").value(-500.0))
+                .andExpect(jsonPath("upserts[" + (values.length - 10) + "].date").value(firstDate.plusDays(values.length - 9).toString()));
+    }
+
+    @Test
+    public void uploadIndicatorByIdWithNewNameChangesETag() throws Exception {
+        Optional<User> user = userRepository.findByEmail(TEST_EMAIL);
+        assertTrue(user.isPresent());
+        long indicatorId = submitNewIndicator("Test Name", "TT", user.get()).getId();
+        uploadValues(indicatorId, LocalDate.of(2000, 1, 1), new double[]{1, 2, 3});
+
+        String eTag = mockMvc.perform(get(API_INDICATOR_PREFIX + "/" + indicatorId)
+                .contentType(contentType))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(eTag);
+        long version = indicatorRepository.findChangeVersionById(indicatorId);
+
+        String content = "{\"name\": \"New Name\", \"records\": [" +
+                "{\"value\": 1.0, \"date\": \"2000-01-01\"}," +
+                "{\"value\": 2.0, \"date\": \"2000-01-02\"}," +
+                "{\"value\": 3.0, \"date\": \"2000-01-03\"}]}";
+        MockMultipartFile jsonFile = new MockMultipartFile("file", "Values.json", "multipart/form-data",
+                content.getBytes(StandardCharsets.UTF_8));
+        mockMvc.perform(multipart(API_INDICATOR_PREFIX + "/" + indicatorId + "/upload")
+                .file(jsonFile))
+                .andExpect(status().isOk());
+        assertEquals(version, indicatorRepository.findChangeVersionById(indicatorId));
+
+        mockMvc.perform(get(API_INDICATOR_PREFIX + "/" + indicatorId)
+                .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                .contentType(contentType))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("name").value("New Name"))
+                .andExpect(jsonPath("unit").value("TT"));
+    }
+}
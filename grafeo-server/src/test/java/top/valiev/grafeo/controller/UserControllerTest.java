@@ -1,8 +1,10 @@
 package top.valiev.grafeo.controller;
 
+import org.apache.commons.io.IOUtils;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.context.junit4.SpringRunner;
@@ -15,10 +17,20 @@ import top.valiev.grafeo.payload.IndicatorResponse;
 import top.valiev.grafeo.payload.LoginRequest;
 import top.valiev.grafeo.payload.PagedResponse;
 import top.valiev.grafeo.payload.ProfileRequest;
-
+import top.valiev.grafeo.payload.RecordRequest;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
@@ -170,6 +182,103 @@ public class UserControllerTest extends AbstractControllerTest {
                 .andExpect(jsonPath("available").value("false"));
     }
 
+    @Test
+    public void exportCurrentUser() throws Exception {
+        User user = userService.createUser("User Profile", "user_c_6@grafeo.pro", "user_c_6@grafeo.pro", "123456");
+
+        LoginRequest loginRequest = new LoginRequest();
+        loginRequest.setUsernameOrEmail("user_c_6@grafeo.pro");
+        loginRequest.setPassword("123456");
+
+        mockMvc.perform(post(AuthControllerTest.API_AUTH_PREFIX + "/signin")
+                .content(json(loginRequest))
+                .contentType(contentType))
+                .andExpect(status().isOk());
+
+        long firstId = submitNewIndicator("Test Name", "TT", user).getId();
+        long secondId = submitNewIndicator("Test Name", "TT", user).getId();
+        RecordRequest recordRequest = new RecordRequest();
+        recordRequest.setIndicatorId(secondId);
+        recordRequest.setDate(LocalDate.of(2020, 1, 1));
+        recordRequest.setValue(42.0);
+        mockMvc.perform(post(IndicatorControllerTest.API_INDICATOR_PREFIX + "/" + secondId + "/records")
+                .content(json(recordRequest))
+                .contentType(contentType))
+                .andExpect(status().isOk());
+
+        MvcResult mvcResult = mockMvc.perform(get(API_USERS_PREFIX + "/me/export"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/zip"))
+                .andReturn();
+
+        List<String> names = new ArrayList<>();
+        String lastEntry = null;
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(mvcResult.getResponse().getContentAsByteArray()))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                names.add(entry.getName());
+                lastEntry = IOUtils.toString(zip, StandardCharsets.UTF_8);
+            }
+        }
+        assertEquals(Arrays.asList(firstId + "-Test Name.json", secondId + "-Test Name.json"), names);
+        Indicator exported = gson.fromJson(lastEntry, Indicator.class);
+        assertEquals("Test Name", exported.getName());
+        assertEquals(1, exported.getRecords().size());
+        assertEquals(42.0, exported.getRecords().get(0).getValue(), 0.0d);
+    }
+
+    @Test
+    public void getCorrelations() throws Exception {
+        User user = userService.createUser("User Profile", "user_c_7@grafeo.pro", "user_c_7@grafeo.pro", "123456");
+
+        LoginRequest loginRequest = new LoginRequest();
+        loginRequest.setUsernameOrEmail("user_c_7@grafeo.pro");
+        loginRequest.setPassword("123456");
+
+        mockMvc.perform(post(AuthControllerTest.API_AUTH_PREFIX + "/signin")
+                .content(json(loginRequest))
+                .contentType(contentType))
+                .andExpect(status().isOk());
+
+        long firstId = submitNewIndicator("Test Name", "TT", user).getId();
+        long secondId = submitNewIndicator("Test Name", "TT", user).getId();
+        LocalDate firstDate = LocalDate.of(2020, 1, 1);
+        for (int i = 0; i < 4; i++) {
+            postRecord(firstId, firstDate.plusDays(i), i);
+            postRecord(secondId, firstDate.plusDays(i), 10.0 - i * i);
+        }
+
+        mockMvc.perform(get(API_USERS_PREFIX + "/me/correlations")
+                .param("method", "spearman")
+                .contentType(contentType))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("indicatorIds[1]").value(secondId))
+                .andExpect(jsonPath("values[0][0]").value(1.0))
+                .andExpect(jsonPath("values[0][1]").value(-1.0));
+
+        postRecord(secondId, firstDate.plusDays(1), -10.0);
+        mockMvc.perform(get(API_USERS_PREFIX + "/me/correlations")
+                .param("method", "spearman")
+                .contentType(contentType))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("values[1][0]").value(-0.4));
+
+        mockMvc.perform(get(API_USERS_PREFIX + "/me/correlations")
+                .param("ids", String.valueOf(firstId), "1000000")
+                .contentType(contentType))
+                .andExpect(status().isNotFound());
+    }
+
+    private void postRecord(long indicatorId, LocalDate date, double value) throws Exception {
+        RecordRequest recordRequest = new RecordRequest();
+        recordRequest.setIndicatorId(indicatorId);
+        recordRequest.setDate(date);
+        recordRequest.setValue(value);
+        mockMvc.perform(post(IndicatorControllerTest.API_INDICATOR_PREFIX + "/" + indicatorId + "/records")
+                .content(json(recordRequest))
+                .contentType(contentType))
+                .andExpect(status().isOk());
+    }
+
     @Test
     public void getIndicatorsCreatedBy() throws Exception {
         User user = userService.createUser("User Profile", "user_c_3@grafeo.pro", "user_c_3@grafeo.pro", "123456");
@@ -206,5 +315,114 @@ public class UserControllerTest extends AbstractControllerTest {
         assertEquals(initialIndicator.get().getName(), indicatorResponse.get("name"));
         assertEquals(initialIndicator.get().getUnit(), indicatorResponse.get("unit"));
 
+        String etag = mvcResult.getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+        mockMvc.perform(get(API_USERS_PREFIX + "/" + user.getId() + "/indicators")
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .contentType(contentType))
+                .andExpect(status().isNotModified());
+
+        submitNewIndicator("Test Name", "TT", user);
+        mockMvc.perform(get(API_USERS_PREFIX + "/" + user.getId() + "/indicators")
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .contentType(contentType))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content.length()").value(2));
+    }
+
+    @Test
+    public void getIndicatorSummariesCreatedBy() throws Exception {
+        User user = userService.createUser("User Profile", "user_c_4@grafeo.pro", "user_c_4@grafeo.pro", "123456");
+
+        LoginRequest loginRequest = new LoginRequest();
+        loginRequest.setUsernameOrEmail("user_c_4@grafeo.pro");
+        loginRequest.setPassword("123456");
+
+        mockMvc.perform(post(AuthControllerTest.API_AUTH_PREFIX + "/signin")
+                .content(json(loginRequest))
+                .contentType(contentType))
+                .andExpect(status().isOk());
+
+        long indicatorId = submitNewIndicator("Test Name", "TT", user).getId();
+        LocalDate firstDate = LocalDate.of(2020, 1, 1);
+        for (int i = 0; i < 3; i++) {
+            RecordRequest recordRequest = new RecordRequest();
+            recordRequest.setIndicatorId(indicatorId);
+            recordRequest.setDate(firstDate.plusDays(i));
+            recordRequest.setValue(10.0 + i);
+            mockMvc.perform(post(IndicatorControllerTest.API_INDICATOR_PREFIX + "/" + indicatorId + "/records")
+                    .content(json(recordRequest))
+                    .contentType(contentType))
+                    .andExpect(status().isOk());
+        }
+
+        mockMvc.perform(get(API_USERS_PREFIX + "/" + user.getId() + "/indicators")
+                .param("view", "summary")
+                .param("sparkline", "2")
+                .contentType(contentType))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content.length()").value(1))
+                .andExpect(jsonPath("content[0].id").value(indicatorId))
+                .andExpect(jsonPath("content[0].recordCount").value(3))
+                .andExpect(jsonPath("content[0].lastDate").value("2020-01-03"))
+                .andExpect(jsonPath("content[0].lastValue").value(12.0))
+                .andExpect(jsonPath("content[0].sparkline.length()").value(2))
+                .andExpect(jsonPath("content[0].sparkline[0]").value(11.0))
+                .andExpect(jsonPath("content[0].records").doesNotExist());
+
+        mockMvc.perform(get(API_USERS_PREFIX + "/" + user.getId() + "/indicators")
+                .param("view", "summary")
+                .param("sparkline", "1000")
+                .contentType(contentType))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void getIndicatorsCreatedByCursor() throws Exception {
+        User user = userService.createUser("User Profile", "user_c_5@grafeo.pro", "user_c_5@grafeo.pro", "123456");
+
+        LoginRequest loginRequest = new LoginRequest();
+        loginRequest.setUsernameOrEmail("user_c_5@grafeo.pro");
+        loginRequest.setPassword("123456");
+
+        mockMvc.perform(post(AuthControllerTest.API_AUTH_PREFIX + "/signin")
+                .content(json(loginRequest))
+                .contentType(contentType))
+                .andExpect(status().isOk());
+
+        Set<Long> indicatorIds = new HashSet<>();
+        for (int i = 0; i < 3; i++) {
+            indicatorIds.add(submitNewIndicator("Test Name", "TT", user).getId());
+        }
+
+        for (String sort : Arrays.asList("updated", "name")) {
+            Set<Long> listedIds = new HashSet<>();
+            String cursor = "";
+            for (int page = 0; page < 2; page++) {
+                MvcResult mvcResult = mockMvc.perform(get(API_USERS_PREFIX + "/" + user.getId() + "/indicators")
+                        .param("cursor", cursor)
+                        .param("size", "2")
+                        .param("sort", sort)
+                        .param("count", String.valueOf(page == 0))
+                        .contentType(contentType))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("content.length()").value(page == 0 ? 2 : 1))
+                        .andExpect(jsonPath("totalElements").value(page == 0 ? 3 : null))
+                        .andReturn();
+
+                Map<String, Object> response = gson.fromJson(mvcResult.getResponse().getContentAsString(), Map.class);
+                for (Object indicator : (List) response.get("content")) {
+                    listedIds.add(((Double) ((Map<String, Object>) indicator).get("id")).longValue());
+                }
+                cursor = (String) response.get("next");
+            }
+            assertNull(cursor);
+            assertEquals(indicatorIds, listedIds);
+        }
+
+        mockMvc.perform(get(API_USERS_PREFIX + "/" + user.getId() + "/indicators")
+                .param("cursor", "not a cursor")
+                .contentType(contentType))
+                .andExpect(status().isBadRequest());
     }
-}
\ No newline at end of file
+}
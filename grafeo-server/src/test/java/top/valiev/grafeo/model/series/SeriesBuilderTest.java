@@ -0,0 +1,42 @@
+package top.valiev.grafeo.model.series;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SeriesBuilderTest {
+
+    @Test
+    public void buildSortsAndKeepsLastValueOfDay() {
+        SeriesBuilder builder = new SeriesBuilder();
+        builder.add(5, 5.0);
+        builder.add(-3, -3.0);
+        builder.add(5, 50.0);
+        builder.add(0, 0.0);
+        for (int day = 100; day < 140; day++) {
+            builder.add(day, day);
+        }
+
+        Series series = builder.build();
+
+        assertEquals(43, series.size());
+        assertEquals(-3, series.dayAt(0));
+        assertEquals(0, series.dayAt(1));
+        assertEquals(50.0, series.valueAt(2), 0.0d);
+        assertEquals(139.0, series.valueAt(42), 0.0d);
+    }
+
+    @Test
+    public void buildOrderedPoints() {
+        SeriesBuilder builder = new SeriesBuilder();
+        assertTrue(builder.build().isEmpty());
+
+        builder.add(1, 1.0);
+        builder.add(2, 2.0);
+        Series series = builder.build();
+        series.append(3, 3.0);
+
+        assertEquals(3, series.size());
+        assertEquals(2.0, series.valueAt(1), 0.0d);
+    }
+}
@@ -0,0 +1,92 @@
+package top.valiev.grafeo.model.series;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SeriesCodecTest {
+
+    @Test
+    public void encodeEmptySeries() {
+        Series decoded = SeriesCodec.decode(SeriesCodec.encode(new Series()));
+        assertTrue(decoded.isEmpty());
+    }
+
+    @Test
+    public void encodeDailySeries() {
+        Series series = new Series();
+        Random random = new Random(42);
+        int firstDay = (int) LocalDate.of(2015, 1, 1).toEpochDay();
+        double value = 100;
+        for (int i = 0; i < 365; i++) {
+            value += Math.round(random.nextGaussian() * 100) / 100.0;
+            series.append(firstDay + i + (i / 7), value);
+        }
+        series.append(firstDay + 1000, Double.NaN);
+        series.append(firstDay + 1001, -0.0);
+        series.append(firstDay + 1002, Double.MAX_VALUE);
+
+        byte[] data = SeriesCodec.encode(series);
+        Series decoded = SeriesCodec.decode(data);
+
+        assertEquals(series.size(), decoded.size());
+        for (int i = 0; i < series.size(); i++) {
+            assertEquals(series.dayAt(i), decoded.dayAt(i));
+            assertEquals(Double.doubleToRawLongBits(series.valueAt(i)), Double.doubleToRawLongBits(decoded.valueAt(i)));
+        }
+        assertTrue(data.length < series.size() * 12);
+    }
+
+    @Test
+    public void rejectInvalidPointCount() {
+        // count -1, then 1000 points in two bytes
+        assertThrows(IllegalArgumentException.class,
+                () -> SeriesCodec.decode(new byte[]{1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F}));
+        assertThrows(IllegalArgumentException.class, () -> SeriesCodec.decode(new byte[]{1, (byte) 0xE8, 0x07, 0, 0}));
+
+        Series series = new Series();
+        series.append(1, 1.0);
+        series.append(2, 2.0);
+        series.append(3, 3.0);
+        byte[] data = SeriesCodec.encode(series);
+        assertEquals(3, SeriesCodec.decode(data, 3).size());
+        assertThrows(IllegalArgumentException.class, () -> SeriesCodec.decode(data, 2));
+    }
+
+    @Test
+    public void encodeDatesBeforeEpoch() {
+        Series series = new Series();
+        series.append((int) LocalDate.of(1960, 5, 1).toEpochDay(), 1.5);
+        series.append((int) LocalDate.of(1960, 5, 2).toEpochDay(), 1.5);
+
+        Series decoded = SeriesCodec.decode(SeriesCodec.encode(series));
+
+        assertEquals(LocalDate.of(1960, 5, 1), decoded.dateAt(0));
+        assertEquals(LocalDate.of(1960, 5, 2), decoded.dateAt(1));
+        assertEquals(1.5, decoded.valueAt(1), 0.0d);
+    }
+
+    @Test
+    public void putAndRemoveKeepOrder() {
+        Series series = new Series(1);
+        assertTrue(series.put(5, 5.0));
+        assertTrue(series.put(1, 1.0));
+        assertTrue(series.put(3, 3.0));
+        assertFalse(series.put(3, 3.0));
+        assertTrue(series.put(3, 4.0));
+
+        assertEquals(3, series.size());
+        assertEquals(1, series.dayAt(0));
+        assertEquals(3, series.dayAt(1));
+        assertEquals(4.0, series.valueAt(1), 0.0d);
+        assertEquals(5, series.dayAt(2));
+
+        assertTrue(series.remove(3));
+        assertFalse(series.remove(3));
+        assertEquals(2, series.size());
+        assertEquals(5, series.lastDay());
+    }
+}
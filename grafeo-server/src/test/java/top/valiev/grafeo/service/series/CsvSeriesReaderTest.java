@@ -0,0 +1,90 @@
+package top.valiev.grafeo.service.series;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import top.valiev.grafeo.model.series.Series;
+import top.valiev.grafeo.model.series.SeriesBuilder;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CsvSeriesReaderTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void readHeaderQuotesAndSeparators() throws IOException {
+        Path file = directory.resolve("small.csv");
+        Files.write(file, ("\uFEFFdate,value\r\n"
+                + "2020-01-03;-1.5e2\r\n"
+                + "\"2020-01-01\",\"0.1\"\n"
+                + "\n"
+                + "2020-02-29\t12345678901234567890\n"
+                + "2020-01-03,7,ignored\n").getBytes(StandardCharsets.UTF_8));
+
+        SeriesBuilder points = new SeriesBuilder();
+        CsvSeriesReader.read(file, points::add, read -> {
+        });
+        Series series = points.build();
+        assertEquals(3, series.size());
+        assertEquals(LocalDate.of(2020, 1, 1), series.dateAt(0));
+        assertEquals(0.1, series.valueAt(0), 0.0d);
+        assertEquals(7.0, series.valueAt(1), 0.0d);
+        assertEquals(LocalDate.of(2020, 2, 29), series.dateAt(2));
+        assertEquals(12345678901234567890.0, series.valueAt(2), 0.0d);
+
+        Files.write(file, "2020-01-01,1\n2019-02-29,2\n".getBytes(StandardCharsets.US_ASCII));
+        assertThrows(IllegalArgumentException.class, () -> CsvSeriesReader.read(file, new SeriesBuilder()::add, read -> {
+        }));
+    }
+
+    @Test
+    public void rejectValuesThatAreNotFiniteDecimals() throws IOException {
+        Path file = directory.resolve("values.csv");
+        Files.write(file, "2020-01-01,1234567890.1234567890e-5\n2020-01-02,-1e-400\n".getBytes(StandardCharsets.US_ASCII));
+        SeriesBuilder points = new SeriesBuilder();
+        CsvSeriesReader.read(file, points::add, read -> {
+        });
+        assertEquals(12345.678901234567, points.build().valueAt(0), 1e-9);
+
+        for (String value : Arrays.asList("NaN", "-Infinity", "1e400", "0x1p3", "1.5d", "2f", "1e", ".", "1.2.3")) {
+            Files.write(file, ("2020-01-01," + value + "\n").getBytes(StandardCharsets.US_ASCII));
+            assertThrows(IllegalArgumentException.class, () -> CsvSeriesReader.read(file, new SeriesBuilder()::add, read -> {
+            }), value);
+        }
+    }
+
+    @Test
+    public void readLargeFileInSegments() throws IOException {
+        Path file = directory.resolve("large.csv");
+        LocalDate first = LocalDate.of(1900, 1, 1);
+        int lines = 200000;
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.US_ASCII)) {
+            writer.write("date,value\n");
+            for (int i = 0; i < lines; i++) {
+                writer.write(first.plusDays(i % 50000) + "," + (i * 0.001) + "\n");
+            }
+        }
+        assertTrue(Files.size(file) > 2 << 20);
+
+        AtomicLong read = new AtomicLong();
+        SeriesBuilder points = new SeriesBuilder();
+        CsvSeriesReader.read(file, points::add, read::set);
+        assertEquals(lines, points.size());
+        Series series = points.build();
+        assertEquals(lines + 1, read.get());
+        assertEquals(50000, series.size());
+        assertEquals(first, series.dateAt(0));
+        assertEquals((lines - 50000) * 0.001, series.valueAt(0), 0.0d);
+        assertEquals((lines - 1) * 0.001, series.valueAt(49999), 0.0d);
+    }
+}
@@ -0,0 +1,53 @@
+package top.valiev.grafeo.service.series;
+
+import org.junit.jupiter.api.Test;
+import top.valiev.grafeo.model.series.Series;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SeriesCorrelationTest {
+
+    @Test
+    public void alignsSeriesByDay() {
+        Series a = new Series();
+        Series b = new Series();
+        for (int day = 0; day < 20; day++) {
+            a.append(day, day);
+            if (day % 2 == 0) {
+                b.append(day, Math.exp(day));
+            }
+        }
+        b.append(100, -1000.0);
+
+        assertEquals(1.0, SeriesCorrelation.spearman(a, b), 1e-12);
+        assertTrue(SeriesCorrelation.pearson(a, b) < 0.9);
+
+        Series c = new Series();
+        for (int day = 0; day < 20; day += 3) {
+            c.append(day, 10.0 - day * 2);
+        }
+        assertEquals(-1.0, SeriesCorrelation.pearson(a, c), 1e-12);
+        assertEquals(-1.0, SeriesCorrelation.spearman(a, c), 1e-12);
+    }
+
+    @Test
+    public void matrixIsSymmetricWithMissingPairs() {
+        Series a = new Series();
+        Series b = new Series();
+        Series constant = new Series();
+        for (int day = 0; day < 10; day++) {
+            a.append(day, day % 3);
+            b.append(day, day % 3 == 0 ? 1.0 : 0.0);
+            constant.append(day, 5.0);
+        }
+
+        double[][] matrix = SeriesCorrelation.matrix(Arrays.asList(a, b, constant), SeriesCorrelation.Method.SPEARMAN);
+        assertEquals(1.0, matrix[2][2], 0.0d);
+        assertEquals(matrix[0][1], matrix[1][0], 0.0d);
+        assertTrue(matrix[0][1] < 0);
+        assertTrue(Double.isNaN(matrix[0][2]));
+        assertTrue(Double.isNaN(SeriesCorrelation.pearson(a, new Series())));
+    }
+}
@@ -0,0 +1,36 @@
+package top.valiev.grafeo.service.series;
+
+import org.junit.jupiter.api.Test;
+import top.valiev.grafeo.model.series.Series;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SeriesDownsamplerTest {
+
+    @Test
+    public void keepsSmallSeries() {
+        Series series = new Series();
+        series.append(1, 1.0);
+        series.append(2, 2.0);
+
+        assertSame(series, SeriesDownsampler.lttb(series, 10));
+    }
+
+    @Test
+    public void keepsEndsAndPeaks() {
+        Series series = new Series();
+        for (int day = 0; day < 1000; day++) {
+            series.append(day, day == 500 ? 100.0 : 0.0);
+        }
+
+        Series sampled = SeriesDownsampler.lttb(series, 50);
+
+        assertEquals(50, sampled.size());
+        assertEquals(0, sampled.firstDay());
+        assertEquals(999, sampled.lastDay());
+        assertTrue(sampled.indexOf(500) >= 0);
+        for (int i = 1; i < sampled.size(); i++) {
+            assertTrue(sampled.dayAt(i) > sampled.dayAt(i - 1));
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package top.valiev.grafeo.service.series;
+
+import org.junit.jupiter.api.Test;
+import top.valiev.grafeo.model.series.Series;
+import top.valiev.grafeo.model.series.SeriesBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SeriesFileFormatTest {
+
+    @Test
+    public void writeAndReadSeries() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        SeriesFileFormat.Writer writer = new SeriesFileFormat.Writer(output, "Индекс", null);
+        for (int day = -100; day < 10000; day += 2) {
+            writer.append(day, day * 0.25);
+        }
+        writer.finish();
+
+        SeriesFileFormat.Reader reader = new SeriesFileFormat.Reader(new ByteArrayInputStream(output.toByteArray()));
+        assertEquals("Индекс", reader.getName());
+        assertNull(reader.getUnit());
+        SeriesBuilder points = new SeriesBuilder();
+        reader.readRecords(points::add, read -> {
+        });
+        Series series = points.build();
+        assertEquals(5050, series.size());
+        assertEquals(-100, series.dayAt(0));
+        assertEquals(9998 * 0.25, series.valueAt(5049), 0.0d);
+        assertTrue(output.size() < series.size() * 4);
+    }
+
+    @Test
+    public void rejectCorruptedSeries() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        SeriesFileFormat.Writer writer = new SeriesFileFormat.Writer(output, "Test", "TT");
+        writer.append(1, 1.0);
+        writer.append(2, 2.0);
+        writer.finish();
+        byte[] data = output.toByteArray();
+        data[data.length - 8] ^= 1;
+
+        SeriesFileFormat.Reader reader = new SeriesFileFormat.Reader(new ByteArrayInputStream(data));
+        assertThrows(IllegalArgumentException.class, () -> reader.readRecords(new SeriesBuilder()::add, read -> {
+        }));
+        assertThrows(IllegalArgumentException.class, () -> new SeriesFileFormat.Reader(new ByteArrayInputStream("{}  ".getBytes())));
+    }
+
+    @Test
+    public void rejectValuesThatAreNotFinite() throws IOException {
+        for (double value : new double[]{Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY}) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            SeriesFileFormat.Writer writer = new SeriesFileFormat.Writer(output, "Test", "TT");
+            writer.append(1, 1.0);
+            writer.append(2, value);
+            writer.finish();
+
+            SeriesFileFormat.Reader reader = new SeriesFileFormat.Reader(new ByteArrayInputStream(output.toByteArray()));
+            assertThrows(IllegalArgumentException.class, () -> reader.readRecords(new SeriesBuilder()::add, read -> {
+            }));
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package top.valiev.grafeo.service.series;
+
+import org.junit.jupiter.api.Test;
+import top.valiev.grafeo.model.series.Series;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SeriesForecastTest {
+
+    @Test
+    public void followsLinearTrend() {
+        Series series = new Series();
+        for (int i = 0; i < 50; i++) {
+            series.append(1000 + i * 7, 3.0 + i * 0.5);
+        }
+
+        for (SeriesForecast.Model model : SeriesForecast.Model.values()) {
+            SeriesForecast forecast = SeriesForecast.fit(series, model, 30);
+            assertEquals(7, forecast.getStep());
+            assertEquals(5, forecast.size());
+            assertEquals(1000 + 50 * 7, forecast.dayAt(0));
+            assertEquals(3.0 + 53 * 0.5, forecast.valueAt(3), 1e-6, model.name());
+            assertEquals(forecast.valueAt(3), forecast.upperAt(3), 1e-6, model.name());
+        }
+    }
+
+    @Test
+    public void coversHorizonShorterThanStep() {
+        Series series = new Series();
+        for (int i = 0; i < 10; i++) {
+            series.append(1000 + i * 7, i);
+        }
+
+        SeriesForecast forecast = SeriesForecast.fit(series, SeriesForecast.Model.LINEAR, 3);
+        assertEquals(1, forecast.size());
+        assertEquals(1000 + 10 * 7, forecast.dayAt(0));
+        assertEquals(10, forecast.valueAt(0), 1e-6);
+        assertEquals(2, SeriesForecast.fit(series, SeriesForecast.Model.LINEAR, 8).size());
+    }
+
+    @Test
+    public void bandsWidenWithHorizon() {
+        Series series = new Series();
+        for (int day = 0; day < 10000; day++) {
+            series.append(day, day * 0.01 + Math.sin(day * 1.3) * 5);
+        }
+
+        for (SeriesForecast.Model model : SeriesForecast.Model.values()) {
+            SeriesForecast forecast = SeriesForecast.fit(series, model, 90);
+            assertEquals(90, forecast.size());
+            assertTrue(forecast.lowerAt(0) < forecast.valueAt(0));
+            assertTrue(forecast.upperAt(89) - forecast.lowerAt(89) >= forecast.upperAt(0) - forecast.lowerAt(0));
+        }
+        assertEquals(0, SeriesForecast.fit(new Series(), SeriesForecast.Model.HOLT, 90).size());
+    }
+}
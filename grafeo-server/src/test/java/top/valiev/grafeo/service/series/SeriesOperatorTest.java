@@ -0,0 +1,52 @@
+package top.valiev.grafeo.service.series;
+
+import org.junit.jupiter.api.Test;
+import top.valiev.grafeo.model.series.Series;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SeriesOperatorTest {
+
+    private static Series series(double... values) {
+        Series series = new Series(values.length);
+        for (int i = 0; i < values.length; i++) {
+            series.append(i * 2, values[i]);
+        }
+        return series;
+    }
+
+    @Test
+    public void movingAverages() {
+        Series sma = SeriesOperator.SMA.apply(series(1, 2, 3, 4, 5), 3);
+        assertEquals(3, sma.size());
+        assertEquals(4, sma.firstDay());
+        assertEquals(2.0, sma.valueAt(0), 1e-12);
+        assertEquals(4.0, sma.valueAt(2), 1e-12);
+
+        Series ema = SeriesOperator.EMA.apply(series(10, 20, 30, 40, 40), 3);
+        assertEquals(3, ema.size());
+        assertEquals(sma.firstDay(), ema.firstDay());
+        assertEquals(20.0, ema.valueAt(0), 1e-12);
+        assertEquals(30.0, ema.valueAt(1), 1e-12);
+        assertEquals(35.0, ema.valueAt(2), 1e-12);
+        assertTrue(SeriesOperator.EMA.apply(series(10, 20), 3).isEmpty());
+    }
+
+    @Test
+    public void changesAndTotals() {
+        Series roc = SeriesOperator.ROC.apply(series(0, 50, 10, 75), 2);
+        assertEquals(1, roc.size());
+        assertEquals(6, roc.firstDay());
+        assertEquals(50.0, roc.valueAt(0), 1e-12);
+
+        Series diff = SeriesOperator.DIFF.apply(series(1, 4, 9), 1);
+        assertEquals(2, diff.size());
+        assertEquals(5.0, diff.valueAt(1), 1e-12);
+
+        Series cumsum = SeriesOperator.CUMSUM.apply(series(1, 4, 9), 5);
+        assertEquals(3, cumsum.size());
+        assertEquals(14.0, cumsum.valueAt(2), 1e-12);
+
+        assertTrue(SeriesOperator.SMA.apply(new Series(), 3).isEmpty());
+    }
+}
@@ -0,0 +1,67 @@
+package top.valiev.grafeo.service.series;
+
+import org.junit.jupiter.api.Test;
+import top.valiev.grafeo.model.RollupBucket;
+import top.valiev.grafeo.model.series.Series;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SeriesResamplerTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2020, 1, 6);
+
+    private static int day(int offset) {
+        return (int) MONDAY.plusDays(offset).toEpochDay();
+    }
+
+    @Test
+    public void alignsSeriesOnWeeks() {
+        Series daily = new Series();
+        for (int i = 0; i < 14; i++) {
+            daily.append(day(i), i);
+        }
+        Series sparse = new Series();
+        sparse.append(day(-3), 10.0);
+        sparse.append(day(22), 40.0);
+
+        SeriesResampler resampled = SeriesResampler.resample(Arrays.asList(daily, sparse), RollupBucket.WEEK,
+                SeriesResampler.Aggregation.AVG, SeriesResampler.Fill.NONE, 100);
+        assertEquals(5, resampled.size());
+        assertEquals(day(-7), resampled.dayAt(0));
+        assertEquals(day(21), resampled.dayAt(4));
+        assertTrue(Double.isNaN(resampled.valuesOf(0)[0]));
+        assertEquals(3.0, resampled.valuesOf(0)[1], 0.0d);
+        assertEquals(10.0, resampled.valuesOf(0)[2], 0.0d);
+        assertTrue(Double.isNaN(resampled.valuesOf(0)[3]));
+        assertEquals(10.0, resampled.valuesOf(1)[0], 0.0d);
+        assertTrue(Double.isNaN(resampled.valuesOf(1)[2]));
+
+        SeriesResampler filled = SeriesResampler.resample(Arrays.asList(daily, sparse), RollupBucket.WEEK,
+                SeriesResampler.Aggregation.SUM, SeriesResampler.Fill.LINEAR, 100);
+        assertEquals(70.0, filled.valuesOf(0)[2], 0.0d);
+        assertTrue(Double.isNaN(filled.valuesOf(0)[3]));
+        assertEquals(17.5, filled.valuesOf(1)[1], 1e-12);
+        assertEquals(32.5, filled.valuesOf(1)[3], 1e-12);
+
+        SeriesResampler previous = SeriesResampler.resample(Arrays.asList(daily, sparse), RollupBucket.WEEK,
+                SeriesResampler.Aggregation.LAST, SeriesResampler.Fill.PREVIOUS, 100);
+        assertEquals(13.0, previous.valuesOf(0)[4], 0.0d);
+        assertEquals(10.0, previous.valuesOf(1)[3], 0.0d);
+    }
+
+    @Test
+    public void limitsGridSize() {
+        Series series = new Series();
+        series.append(day(0), 1.0);
+        series.append(day(365), 2.0);
+
+        assertThrows(IllegalArgumentException.class, () -> SeriesResampler.resample(Collections.singletonList(series),
+                RollupBucket.WEEK, SeriesResampler.Aggregation.LAST, SeriesResampler.Fill.NONE, 10));
+        assertEquals(0, SeriesResampler.resample(Collections.singletonList(new Series()), RollupBucket.MONTH,
+                SeriesResampler.Aggregation.LAST, SeriesResampler.Fill.NONE, 10).size());
+    }
+}
@@ -8,6 +8,16 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 import top.valiev.grafeo.Application;
+import top.valiev.grafeo.model.Indicator;
+import top.valiev.grafeo.model.Record;
+import top.valiev.grafeo.model.User;
+import top.valiev.grafeo.payload.IndicatorResponse;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 @ExtendWith(SpringExtension.class)
 @SpringBootTest(classes = Application.class)
@@ -19,6 +29,23 @@ public class ModelMapperTest {
 
     @Test
     public void mapIndicatorToIndicatorResponse() {
+        Indicator indicator = new Indicator("Test");
+        indicator.setRecords(new ArrayList<>(Arrays.asList(
+                record(7L, 1.0, LocalDate.of(2020, 1, 1)),
+                record(3L, 2.0, LocalDate.of(2020, 1, 2)))));
+        User creator = new User("Test", "test", "test@grafeo.pro", "password");
+
+        IndicatorResponse response = ModelMapper.mapIndicatorToIndicatorResponse(indicator, creator);
+
+        assertEquals(2, response.getRecords().size());
+        assertEquals(3L, response.getRecords().get(1).getId());
+        assertEquals(LocalDate.of(2020, 1, 2), response.getRecords().get(1).getDate());
+        assertEquals(2.0, response.getRecords().get(1).getValue(), 0.0d);
+    }
 
+    private static Record record(Long id, double value, LocalDate date) {
+        Record record = new Record(value, date);
+        record.setId(id);
+        return record;
     }
 }
\ No newline at end of file